@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Синтетические данные для бенчмарков.
+ * Приложение поднимается без веб-сервера поверх отдельной H2 в памяти и заполняется
+ * одинаковыми при каждом запуске данными: генератор случайных чисел инициализирован константой.
+ */
+final class BenchmarkData {
+    static final int FRIENDS_PER_USER = 20;
+    static final int LIKES_PER_USER = 10;
+
+    private static final long SEED = 20240801L;
+    private static final int CHUNK_SIZE = 1000;
+
+    private BenchmarkData() {
+    }
+
+    static ConfigurableApplicationContext start(String databaseName) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                // аргументы командной строки, а не properties(): те лишь значения по умолчанию,
+                // и URL из application.properties указывал бы на рабочую файловую БД
+                .run("--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        // кэши выключены, чтобы измерялись сами хранилища
+                        "--filmorate.cache.enabled=false");
+    }
+
+    // приложение с веб-сервером на свободном порту поверх файловой H2 в каталоге directory и с профилем profile
+    static ConfigurableApplicationContext startServer(String directory, String profile) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .profiles(profile)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:file:" + directory + "/filmorate",
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                        "--logging.level.org.zalando.logbook=OFF",
+                        "--filmorate.cache.enabled=false");
+    }
+
+    // то же, но с журналированием, настроенным приложением и профилем
+    static ConfigurableApplicationContext startServerWithLogging(String directory, String profile) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .profiles(profile)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:file:" + directory + "/filmorate",
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--filmorate.cache.enabled=false");
+    }
+
+    // size пользователей и size фильмов; у каждого пользователя FRIENDS_PER_USER друзей и LIKES_PER_USER лайков
+    static void seedDb(ConfigurableApplicationContext context, int size) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final UserDbStorage userStorage = context.getBean(UserDbStorage.class);
+        final FilmDbStorage filmStorage = context.getBean(FilmDbStorage.class);
+        final JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        for (int from = 0; from < size; from += CHUNK_SIZE) {
+            final int to = Math.min(size, from + CHUNK_SIZE);
+            final List<User> users = new ArrayList<>(to - from);
+            final List<Film> films = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                users.add(user(i));
+                films.add(film(i, random));
+            }
+            userStorage.createAll(users);
+            filmStorage.createAll(films);
+        }
+
+        final List<Object[]> friendships = new ArrayList<>();
+        for (long userId = 1; userId <= size; userId++) {
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                final long friendId = 1 + random.nextInt(size);
+                if (friendId != userId) {
+                    friendships.add(new Object[]{userId, friendId});
+                }
+            }
+            if (friendships.size() >= CHUNK_SIZE || userId == size) {
+                jdbc.batchUpdate("MERGE INTO user_friends (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                        friendships);
+                friendships.clear();
+            }
+        }
+        userStorage.rebuildFriendGraph();
+
+        final List<LikeChange> likes = new ArrayList<>();
+        for (long userId = 1; userId <= size; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                likes.add(new LikeChange(1 + (long) random.nextInt(size), userId, true));
+            }
+            if (likes.size() >= CHUNK_SIZE || userId == size) {
+                filmStorage.applyLikes(likes);
+                likes.clear();
+            }
+        }
+    }
+
+    // те же данные, что и в БД, для хранилищ в памяти
+    static void seedInMemory(InMemoryUserStorage userStorage, InMemoryFilmStorage filmStorage, int size) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < size; i++) {
+            userStorage.create(user(i));
+            filmStorage.create(film(i, random));
+        }
+        for (long userId = 1; userId <= size; userId++) {
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                final long friendId = 1 + random.nextInt(size);
+                if (friendId != userId) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        }
+        for (long userId = 1; userId <= size; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                filmStorage.addLike(1 + (long) random.nextInt(size), userId);
+            }
+        }
+    }
+
+    static User user(int i) {
+        final User user = new User();
+        user.setEmail("user" + i + "@mail.ru");
+        user.setLogin("user" + i);
+        user.setName("User " + i);
+        user.setBirthday(LocalDate.of(1970, 1, 1).plusDays(i % 15000));
+        return user;
+    }
+
+    private static Film film(int i, SplittableRandom random) {
+        final Film film = new Film();
+        film.setName("Film " + i);
+        film.setDescription("Synthetic film number " + i);
+        film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25000));
+        film.setDuration(60 + random.nextInt(120));
+        film.setMpa(new Mpa(1 + random.nextInt(5), null));
+        film.setGenres(List.of(new Genre(1 + random.nextInt(6), null)));
+        return film;
+    }
+}
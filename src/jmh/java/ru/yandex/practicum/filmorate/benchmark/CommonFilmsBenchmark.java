@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.utils.SortedLongArrays;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие фильмы двух пользователей с сильно различающимся числом лайков: пересечение отсортированных массивов
+ * (слиянием или галопирующим поиском) в сравнении с пересечением множеств Long.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommonFilmsBenchmark {
+    private static final long USER_ID = 1;
+    private static final long FRIEND_ID = 2;
+
+    @Param({"1000000"})
+    private int films;
+
+    // число лайков активного пользователя
+    @Param({"100000"})
+    private int userLikes;
+
+    // число лайков его друга
+    @Param({"10", "1000", "100000"})
+    private int friendLikes;
+
+    private FilmLikesIndex index;
+    private long[] userFilms;
+    private long[] friendFilms;
+    private Set<Long> userFilmsSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(20240801L);
+        userFilms = random.longs(userLikes * 2L, 1, films + 1).distinct().limit(userLikes).sorted().toArray();
+        friendFilms = random.longs(friendLikes * 2L, 1, films + 1).distinct().limit(friendLikes).sorted().toArray();
+        userFilmsSet = new HashSet<>();
+        for (long filmId : userFilms) {
+            userFilmsSet.add(filmId);
+        }
+        index = new FilmLikesIndex();
+        index.rebuild(Map.of(USER_ID, userFilms, FRIEND_ID, friendFilms));
+    }
+
+    @Benchmark
+    public long[] sortedArrays() {
+        return SortedLongArrays.intersect(userFilms, friendFilms);
+    }
+
+    @Benchmark
+    public Set<Long> hashSet() {
+        final Set<Long> common = new HashSet<>();
+        for (long filmId : friendFilms) {
+            if (userFilmsSet.contains(filmId)) {
+                common.add(filmId);
+            }
+        }
+        return common;
+    }
+
+    // пересечение вместе с упорядочиванием по популярности, как в GET /films/common
+    @Benchmark
+    public List<Long> findCommon() {
+        return index.findCommon(USER_ID, FRIEND_ID);
+    }
+}
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Нагрузочный тест с большим числом одновременных соединений: сравнение задержек в режиме потоков платформы
+ * и в режиме виртуальных потоков (профиль virtual-threads).
+ * Приложение запускается отдельным процессом (у каждого процесса свой лимит открытых файлов), тест держит
+ * connections соединений, каждое из которых отправляет следующий запрос сразу после ответа на предыдущий:
+ * 40% - фильм по ID, 20% - популярные фильмы, 20% - друзья пользователя, 20% - лайк (запись в БД).
+ * Задержки за время разогрева не учитываются. Если в БД меньше size пользователей, тест сначала заполняет ее
+ * через POST /users/bulk и /films/bulk.
+ * Аргументы: URL приложения, число соединений, длительность замера и разогрева в секундах, size.
+ */
+public final class ConcurrentLoadTest {
+    private static final int MAX_SAMPLES = 10_000_000;
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int size;
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private final AtomicInteger samples = new AtomicInteger();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private ConcurrentLoadTest(String baseUrl, int size) {
+        this.baseUrl = baseUrl;
+        this.size = size;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        final int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        final int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        final int size = args.length > 4 ? Integer.parseInt(args[4]) : 10_000;
+
+        final ConcurrentLoadTest test = new ConcurrentLoadTest(baseUrl, size);
+        test.seedIfEmpty();
+        System.out.printf("%d соединений к %s: разогрев %d с, замер %d с%n", connections, baseUrl, warmupSeconds,
+                seconds);
+
+        final CompletableFuture<?>[] workers = IntStream.range(0, connections)
+                .mapToObj(i -> test.loop())
+                .toArray(CompletableFuture[]::new);
+        Thread.sleep(warmupSeconds * 1000L);
+        test.recording = true;
+        Thread.sleep(seconds * 1000L);
+        test.recording = false;
+        test.running = false;
+        CompletableFuture.allOf(workers).join();
+        test.report(seconds);
+    }
+
+    private CompletableFuture<Void> loop() {
+        if (!running) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final long start = System.nanoTime();
+        final boolean recorded = recording;
+        return client.sendAsync(nextRequest(), HttpResponse.BodyHandlers.discarding())
+                .handle((response, exception) -> {
+                    final long latency = System.nanoTime() - start;
+                    if (recorded && recording) {
+                        if (exception != null) {
+                            countError(exception.getClass().getSimpleName());
+                        } else if (response.statusCode() >= 400) {
+                            countError("HTTP " + response.statusCode());
+                        }
+                        final int index = samples.getAndIncrement();
+                        if (index < MAX_SAMPLES) {
+                            latencies[index] = latency;
+                        }
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop());
+    }
+
+    private HttpRequest nextRequest() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int operation = random.nextInt(10);
+        final long id = 1 + random.nextInt(size);
+        if (operation < 4) {
+            return get("/films/" + id);
+        } else if (operation < 6) {
+            return get("/films/popular?count=10");
+        } else if (operation < 8) {
+            return get("/users/" + id + "/friends");
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/films/" + id + "/like/" + (1 + random.nextInt(size))))
+                .timeout(Duration.ofSeconds(60))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private void countError(String type) {
+        errors.increment();
+        errorsByType.computeIfAbsent(type, key -> new LongAdder()).increment();
+    }
+
+    private void seedIfEmpty() throws Exception {
+        // GET /films/{id} отвечает 200 и для неизвестного фильма, поэтому проверяется пользователь
+        if (client.send(get("/users/" + size + "/friends"), HttpResponse.BodyHandlers.discarding()).statusCode()
+                == 200) {
+            return;
+        }
+        System.out.printf("Заполнение БД: %d пользователей и %d фильмов%n", size, size);
+        final StringJoiner users = new StringJoiner("\n");
+        final StringJoiner films = new StringJoiner("\n");
+        for (int i = 0; i < size; i++) {
+            users.add("{\"email\":\"load" + i + "@mail.ru\",\"login\":\"load" + i + "\",\"name\":\"Load " + i
+                    + "\",\"birthday\":\"1990-01-01\"}");
+            films.add("{\"name\":\"Load film " + i + "\",\"description\":\"Load test film\","
+                    + "\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":" + (1 + i % 5) + "},"
+                    + "\"genres\":[{\"id\":" + (1 + i % 6) + "}]}");
+        }
+        postNdjson("/users/bulk", users.toString());
+        postNdjson("/films/bulk", films.toString());
+    }
+
+    private void postNdjson(String path, String body) throws Exception {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + ": HTTP " + response.statusCode() + " " + response.body());
+        }
+        System.out.println(path + ": " + response.body());
+    }
+
+    private void report(int seconds) {
+        final int count = Math.min(samples.get(), MAX_SAMPLES);
+        final long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("Запросов: %d (%.1f в секунду), ошибок: %d %s%n", count, (double) count / seconds,
+                errors.sum(), errorsByType);
+        if (count == 0) {
+            return;
+        }
+        System.out.printf("Задержка, мс: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[count - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
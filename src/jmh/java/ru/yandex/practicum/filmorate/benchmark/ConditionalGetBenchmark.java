@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Условные запросы: чтение фильма и справочника жанров целиком (200) в сравнении с проверкой по ETag (304).
+ * Кроме времени запроса считается суммарный объем тел ответов за итерацию (bodyBytes): его экономит клиент,
+ * у которого представление уже есть.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConditionalGetBenchmark {
+    @Param({"10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private String[] filmsETags;
+    private String genresETag;
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Traffic {
+        public long bodyBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bodyBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final Path directory = Path.of("target", "loadtest", "conditional");
+        FileSystemUtils.deleteRecursively(directory);
+        context = BenchmarkData.startServer(directory.toAbsolutePath().toString(), "default");
+        BenchmarkData.seedDb(context, size);
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        filmsETags = new String[size + 1];
+        for (int id = 1; id <= size; id++) {
+            filmsETags[id] = eTagOf("/films/" + id);
+        }
+        genresETag = eTagOf("/genres");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getFilm(ThreadRandom state, Traffic traffic) throws Exception {
+        return send(request("/films/" + randomId(state)), traffic);
+    }
+
+    @Benchmark
+    public int getFilmNotModified(ThreadRandom state, Traffic traffic) throws Exception {
+        final int id = randomId(state);
+        return send(request("/films/" + id).header("If-None-Match", filmsETags[id]), traffic);
+    }
+
+    @Benchmark
+    public int getGenres(Traffic traffic) throws Exception {
+        return send(request("/genres"), traffic);
+    }
+
+    @Benchmark
+    public int getGenresNotModified(Traffic traffic) throws Exception {
+        return send(request("/genres").header("If-None-Match", genresETag), traffic);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private int send(HttpRequest.Builder request, Traffic traffic) throws Exception {
+        final HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        traffic.bodyBytes += response.body().length;
+        return response.statusCode();
+    }
+
+    private String eTagOf(String path) throws IOException, InterruptedException {
+        return client.send(request(path).build(), HttpResponse.BodyHandlers.discarding())
+                .headers()
+                .firstValue("ETag")
+                .orElseThrow();
+    }
+
+    private int randomId(ThreadRandom state) {
+        return 1 + state.random.nextInt(size);
+    }
+}
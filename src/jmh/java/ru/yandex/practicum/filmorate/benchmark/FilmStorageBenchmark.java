@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.utils.FilmRowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    @Param({"1000", "10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmStorage;
+    private FilmRowMapper mapper;
+    private Connection connection;
+    private ResultSet filmRow;
+    private long likingUserId;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        context = BenchmarkData.start("films" + size);
+        BenchmarkData.seedDb(context, size);
+        filmStorage = context.getBean(FilmDbStorage.class);
+        mapper = context.getBean(FilmRowMapper.class);
+
+        // пользователь без лайков: лайк от него всегда новый
+        final JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO users (email, login, name, birthday) VALUES ('bench@mail.ru', 'bench', 'bench', " +
+                "'2000-01-01')");
+        likingUserId = jdbc.queryForObject("SELECT max(user_id) FROM users", Long.class);
+
+        // строка ResultSet для mapRow открывается один раз и читается повторно
+        connection = context.getBean(DataSource.class).getConnection();
+        final PreparedStatement statement = connection.prepareStatement(
+                "SELECT film_id, name, description, release_date, duration, mpa_rating AS mpa_id " +
+                        "FROM films WHERE film_id = 1", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        filmRow = statement.executeQuery();
+        filmRow.next();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        filmRow.close();
+        connection.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Benchmark
+    public Collection<Film> findPopular() {
+        return filmStorage.findPopular(10);
+    }
+
+    // лайк сразу снимается, чтобы объем данных не менялся между итерациями
+    @Benchmark
+    public long addLike() {
+        final long filmId = 1 + random.nextInt(size);
+        filmStorage.addLike(filmId, likingUserId);
+        filmStorage.deleteLike(filmId, likingUserId);
+        return filmId;
+    }
+
+    @Benchmark
+    public Film mapRow() throws SQLException {
+        return mapper.mapRow(filmRow, 1);
+    }
+}
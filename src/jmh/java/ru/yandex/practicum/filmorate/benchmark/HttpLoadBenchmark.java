@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Нагрузочный сценарий на существующие эндпоинты: настройки пула и H2 по умолчанию в сравнении с профилем prod.
+ * Приложение поднимается с веб-сервером поверх файловой H2 в target/loadtest, запросы идут по HTTP из 32 потоков
+ * вперемешку: чтение фильма, популярные фильмы, общие друзья и лайк (запись).
+ * Лайки ставят отдельные пользователи без лайков в исходных данных, пары (фильм, пользователь) не повторяются.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class HttpLoadBenchmark {
+    private static final int LIKING_USERS = 1000;
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    @Param({"10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private final AtomicLong likeCounter = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Path directory = Path.of("target", "loadtest", profile);
+        FileSystemUtils.deleteRecursively(directory);
+        context = BenchmarkData.startServer(directory.toAbsolutePath().toString(), profile);
+        BenchmarkData.seedDb(context, size);
+        context.getBean(UserDbStorage.class).createAll(IntStream.range(size, size + LIKING_USERS)
+                .mapToObj(BenchmarkData::user)
+                .toList());
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getFilm(ThreadRandom state) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films/" + randomId(state))).GET());
+    }
+
+    @Benchmark
+    public int getPopular() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films/popular?count=10")).GET());
+    }
+
+    @Benchmark
+    public int getCommonFriends(ThreadRandom state) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(
+                baseUrl + "/users/" + randomId(state) + "/friends/common/" + randomId(state))).GET());
+    }
+
+    @Benchmark
+    public int putLike() throws Exception {
+        final long like = likeCounter.getAndIncrement();
+        return send(HttpRequest.newBuilder(URI.create(
+                baseUrl + "/films/" + (1 + like % size) + "/like/" + (size + 1 + like / size)))
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        final int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status >= 400) {
+            throw new IllegalStateException("HTTP " + status);
+        }
+        return status;
+    }
+
+    private long randomId(ThreadRandom state) {
+        return 1 + state.random.nextInt(size);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryStorageBenchmark {
+    @Param({"1000", "10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // контекст нужен только ради справочников жанров и MPA, которыми проверяются фильмы
+        context = BenchmarkData.start("memory" + size);
+        filmStorage = context.getBean(InMemoryFilmStorage.class);
+        userStorage = context.getBean(InMemoryUserStorage.class);
+        BenchmarkData.seedInMemory(userStorage, filmStorage, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Benchmark
+    public Collection<Film> findPopular() {
+        return filmStorage.findPopular(10);
+    }
+
+    @Benchmark
+    public long addLike() {
+        final long filmId = 1 + random.nextInt(size);
+        filmStorage.addLike(filmId, Long.MAX_VALUE);
+        filmStorage.deleteLike(filmId, Long.MAX_VALUE);
+        return filmId;
+    }
+
+    @Benchmark
+    public Collection<User> findCommonFriends() {
+        return userStorage.findCommonFriends(1 + (long) random.nextInt(size), 1 + (long) random.nextInt(size));
+    }
+}
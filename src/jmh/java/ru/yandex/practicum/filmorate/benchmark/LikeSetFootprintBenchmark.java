@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память под лайки одного фильма: LongHashSet против HashSet&lt;Long&gt;.
+ * Каждый вызов заполняет новое множество; счетчик retainedBytesPerLike показывает,
+ * сколько байт кучи остается занято множеством в пересчете на один лайк.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="-prof gc LikeSetFootprint"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class LikeSetFootprintBenchmark {
+    @Param({"10000000"})
+    private int likes;
+
+    @Benchmark
+    public Set<Long> longHashSet(Footprint footprint) {
+        return footprint.measure(likes, new LongHashSet());
+    }
+
+    @Benchmark
+    public Set<Long> boxedHashSet(Footprint footprint) {
+        return footprint.measure(likes, new HashSet<>());
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerLike;
+
+        Set<Long> measure(int likes, Set<Long> set) {
+            final long before = usedHeap();
+            for (long userId = 1; userId <= likes; userId++) {
+                set.add(userId);
+            }
+            retainedBytesPerLike = (usedHeap() - before) / likes;
+            return set;
+        }
+
+        private static long usedHeap() {
+            final Runtime runtime = Runtime.getRuntime();
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
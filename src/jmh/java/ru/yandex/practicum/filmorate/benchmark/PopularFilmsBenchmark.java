@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.utils.TopK;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выбор популярных фильмов: полная сортировка против кучи размера K, последовательно и параллельно.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PopularFilmsBenchmark {
+    private static final Comparator<Film> POPULARITY_ORDER =
+            Comparator.comparingInt((Film film) -> film.getLikeUserIds().size()).reversed()
+                    .thenComparing(Film::getId);
+
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"10", "100", "1000"})
+    private int count;
+
+    private List<Film> catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(20240801L);
+        catalog = new ArrayList<>(films);
+        for (long id = 1; id <= films; id++) {
+            final Film film = new Film();
+            film.setId(id);
+            final int likes = random.nextInt(20);
+            for (long userId = 1; userId <= likes; userId++) {
+                film.getLikeUserIds().add(userId);
+            }
+            catalog.add(film);
+        }
+    }
+
+    @Benchmark
+    public List<Film> fullSort() {
+        return catalog.stream().sorted(POPULARITY_ORDER).limit(count).toList();
+    }
+
+    @Benchmark
+    public List<Film> topK() {
+        return catalog.stream().collect(TopK.collector(count, POPULARITY_ORDER));
+    }
+
+    @Benchmark
+    public List<Film> topKParallel() {
+        return catalog.parallelStream().collect(TopK.collector(count, POPULARITY_ORDER));
+    }
+}
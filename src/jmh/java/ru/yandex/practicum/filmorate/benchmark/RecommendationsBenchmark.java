@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов по матрице лайков в памяти: распределение времени одного запроса
+ * при подсчете общих лайков одним потоком и по долям в нескольких потоках.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class RecommendationsBenchmark {
+    private static final int LIKES_PER_USER = 20;
+
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"100000"})
+    private int films;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private FilmLikesIndex index;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom likes = new SplittableRandom(20240801L);
+        final Map<Long, long[]> usersLikes = new HashMap<>(users * 2);
+        for (long userId = 1; userId <= users; userId++) {
+            // куб равномерной величины дает длинный хвост: у первых фильмов сотни тысяч лайков
+            usersLikes.put(userId, likes.doubles(LIKES_PER_USER * 2L)
+                    .mapToLong(u -> 1 + (long) (films * u * u * u))
+                    .distinct()
+                    .limit(LIKES_PER_USER)
+                    .toArray());
+        }
+        index = new FilmLikesIndex(parallelism);
+        index.rebuild(usersLikes);
+    }
+
+    @Benchmark
+    public List<Long> recommend() {
+        return index.recommend(1 + random.nextInt(users), 10);
+    }
+}
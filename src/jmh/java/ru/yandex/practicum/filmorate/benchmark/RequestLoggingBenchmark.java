@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Цена журналирования на горячих путях: журналирование по умолчанию (TRACE, Logbook пишет каждый запрос с телом,
+ * вывод в потоке запроса) в сравнении с профилем async-logging (INFO, выборка 1% запросов, тело не больше 2 КБ,
+ * вывод отдельным потоком). Консольный журнал перенаправляется в файл в target/loadtest, чтобы не идти через JMH;
+ * запросы идут по HTTP из 16 потоков.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class RequestLoggingBenchmark {
+    private static final int LIKING_USERS = 1000;
+
+    @Param({"default", "async-logging"})
+    private String profile;
+
+    // GET /films отдает все фильмы, поэтому тело ответа растет с size
+    @Param({"1000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private final AtomicLong likeCounter = new AtomicLong();
+    private PrintStream stdout;
+    private PrintStream logFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Path directory = Path.of("target", "loadtest", "logging-" + profile);
+        FileSystemUtils.deleteRecursively(directory);
+        Files.createDirectories(directory);
+        // ConsoleAppender пишет в текущий System.out при каждом событии
+        stdout = System.out;
+        logFile = new PrintStream(new FileOutputStream(directory.resolve("filmorate.log").toFile()), false,
+                StandardCharsets.UTF_8);
+        System.setOut(logFile);
+        context = BenchmarkData.startServerWithLogging(directory.toAbsolutePath().toString(), profile);
+        BenchmarkData.seedDb(context, size);
+        context.getBean(UserDbStorage.class).createAll(IntStream.range(size, size + LIKING_USERS)
+                .mapToObj(BenchmarkData::user)
+                .toList());
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        System.setOut(stdout);
+        logFile.close();
+    }
+
+    @Benchmark
+    public int getFilms() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films")).GET());
+    }
+
+    @Benchmark
+    public int putLike() throws Exception {
+        final long like = likeCounter.getAndIncrement();
+        return send(HttpRequest.newBuilder(URI.create(
+                baseUrl + "/films/" + (1 + like % size) + "/like/" + (size + 1 + like / size)))
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        final int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status >= 400) {
+            throw new IllegalStateException("HTTP " + status);
+        }
+        return status;
+    }
+}
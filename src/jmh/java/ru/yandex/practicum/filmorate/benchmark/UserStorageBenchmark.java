@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.utils.UserRowMapper;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья и рекомендации по графу дружбы в памяти в сравнении с прежним запросом через INTERSECT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+    private static final String SQL_COMMON_FRIENDS_QUERY = "SELECT * FROM users WHERE user_id IN " +
+            "(SELECT friend_id FROM user_friends WHERE user_id = ? INTERSECT " +
+            "SELECT friend_id FROM user_friends WHERE user_id = ?)";
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private UserDbStorage userStorage;
+    private UserRowMapper mapper;
+    private JdbcTemplate jdbc;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start("users" + size);
+        BenchmarkData.seedDb(context, size);
+        userStorage = context.getBean(UserDbStorage.class);
+        mapper = context.getBean(UserRowMapper.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<User> findCommonFriends() {
+        return userStorage.findCommonFriends(randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> findCommonFriendsSql() {
+        return jdbc.query(SQL_COMMON_FRIENDS_QUERY, mapper, randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> findFriendSuggestions() {
+        return userStorage.findFriendSuggestions(randomUserId(), 10);
+    }
+
+    private long randomUserId() {
+        return 1 + random.nextInt(size);
+    }
+}
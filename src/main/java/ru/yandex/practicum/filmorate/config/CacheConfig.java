@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Кэширование чтения сущностей по ID перед хранилищами (@Cacheable / @CacheEvict в *DbStorage).
+ * Caffeine вытесняет записи по размеру (W-TinyLFU) и по времени жизни, заданным для каждого кэша.
+ * Выключается свойством filmorate.cache.enabled=false - тогда аннотации кэширования игнорируются.
+ */
+@Slf4j
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(EntityCacheProperties.class)
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+    public static final String FILMS = "films";
+    public static final String USERS = "users";   // признак существования пользователя
+
+    // жанры и MPA-рейтинги не кэшируются: они целиком загружены в память в DictionaryRegistry
+    private static final List<String> CACHE_NAMES = List.of(FILMS, USERS);
+
+    @Bean
+    public CacheManager cacheManager(EntityCacheProperties properties) {
+        final CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        for (String name : CACHE_NAMES) {
+            final EntityCacheProperties.Spec spec = properties.getSpecs()
+                    .getOrDefault(name, new EntityCacheProperties.Spec());
+            log.info("Кэш {}: не более {} записей, время жизни {}", name, spec.getMaxSize(), spec.getTtl());
+            cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                    .maximumSize(spec.getMaxSize())
+                    .expireAfterWrite(spec.getTtl())
+                    .recordStats()
+                    .build());
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public CacheStatsEndpoint cacheStatsEndpoint(CacheManager cacheManager) {
+        return new CacheStatsEndpoint(cacheManager);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Статистика кэшей сущностей: GET /actuator/cachestats.
+ */
+@Endpoint(id = "cachestats")
+@RequiredArgsConstructor
+public class CacheStatsEndpoint {
+    private final CacheManager cacheManager;
+
+    @ReadOperation
+    public Map<String, CacheStatsView> stats() {
+        final Map<String, CacheStatsView> result = new TreeMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                final CacheStats stats = cache.getNativeCache().stats();
+                result.put(name, new CacheStatsView(cache.getNativeCache().estimatedSize(), stats.hitCount(),
+                        stats.missCount(), stats.evictionCount(), stats.hitRate()));
+            }
+        }
+        return result;
+    }
+
+    public record CacheStatsView(long size, long hits, long misses, long evictions, double hitRate) {
+    }
+}
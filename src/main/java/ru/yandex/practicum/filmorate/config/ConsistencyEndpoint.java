@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.Map;
+
+/**
+ * Проверка согласованности данных: POST /actuator/consistency пересчитывает счетчики лайков фильмов
+ * по film_likes и возвращает число исправленных. При старте пересчет не выполняется.
+ */
+@Component
+@Endpoint(id = "consistency")
+@RequiredArgsConstructor
+public class ConsistencyEndpoint {
+    private final FilmDbStorage filmStorage;
+
+    @WriteOperation
+    public Map<String, Integer> recountLikes() {
+        return Map.of("fixedLikesCounts", filmStorage.recountLikes());
+    }
+}
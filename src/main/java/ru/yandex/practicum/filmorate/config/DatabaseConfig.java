@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Пул соединений и настройки файловой H2 для рабочей нагрузки (профиль prod).
+ * URL, логин и пароль берутся из spring.datasource.*, размер пула и параметры H2 - из filmorate.db.*.
+ * Без профиля prod источник данных по-прежнему создается автоконфигурацией Spring Boot с настройками Hikari
+ * по умолчанию.
+ */
+@Slf4j
+@Configuration
+@Profile("prod")
+@EnableConfigurationProperties(DatabaseProperties.class)
+public class DatabaseConfig {
+    @Bean
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties, DatabaseProperties properties) {
+        final HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(properties.jdbcUrl(dataSourceProperties.determineUrl()))
+                .build();
+        dataSource.setPoolName("filmorate");
+        dataSource.setMaximumPoolSize(properties.getPoolSize());
+        dataSource.setMinimumIdle(properties.getMinIdle());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        log.info("Пул соединений: до {} соединений (простаивают не менее {}), ожидание соединения {}, URL {}",
+                properties.getPoolSize(), properties.getMinIdle(), properties.getConnectionTimeout(),
+                dataSource.getJdbcUrl());
+        return dataSource;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.config;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки пула соединений и файловой H2 для профиля prod: filmorate.db.*.
+ * Проверяются при старте - с недопустимыми значениями приложение не запустится.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "filmorate.db")
+public class DatabaseProperties {
+    // размер пула Hikari: H2 выполняет запросы в потоке вызывающего, больше соединений, чем потоков
+    // запросов, не нужно, а избыток только увеличивает конкуренцию за блокировки MVStore
+    @Min(1)
+    @Max(256)
+    private int poolSize = 10;
+
+    @Min(0)
+    private int minIdle = 10;
+
+    // сколько запрос ждет свободное соединение из пула
+    @NotNull
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+
+    // кэш страниц MVStore в КБ (CACHE_SIZE), по умолчанию в H2 - 64 МБ
+    @Min(1024)
+    private int cacheSizeKb = 65536;
+
+    // число разобранных запросов в кэше каждой сессии (QUERY_CACHE_SIZE) - аналог prepStmtCacheSize
+    // драйверов других СУБД, у драйвера H2 такого свойства нет
+    @Min(0)
+    @Max(4096)
+    private int queryCacheSize = 8;
+
+    // ожидание блокировки строки/таблицы другой транзакцией (LOCK_TIMEOUT)
+    @NotNull
+    private Duration lockTimeout = Duration.ofSeconds(1);
+
+    // задержка сброса журнала на диск после коммита (WRITE_DELAY): 0 - сброс при каждом коммите
+    @NotNull
+    private Duration writeDelay = Duration.ofMillis(500);
+
+    // процент заполнения файла MVStore, ниже которого запускается фоновое уплотнение (AUTO_COMPACT_FILL_RATE)
+    @Min(0)
+    @Max(100)
+    private int autoCompactFillRate = 90;
+
+    // время уплотнения файла при закрытии БД (MAX_COMPACT_TIME)
+    @NotNull
+    private Duration maxCompactTime = Duration.ofMillis(200);
+
+    @AssertTrue(message = "filmorate.db.min-idle не может превышать filmorate.db.pool-size")
+    public boolean isMinIdleWithinPool() {
+        return minIdle <= poolSize;
+    }
+
+    // иначе запрос, ждущий блокировку, держит соединение дольше, чем другие готовы ждать его в пуле
+    @AssertTrue(message = "filmorate.db.connection-timeout должен быть больше filmorate.db.lock-timeout")
+    public boolean isConnectionTimeoutAboveLockTimeout() {
+        return connectionTimeout == null || lockTimeout == null || connectionTimeout.compareTo(lockTimeout) > 0;
+    }
+
+    // URL с настройками H2, которые задаются при открытии БД
+    public String jdbcUrl(String baseUrl) {
+        return baseUrl +
+                ";CACHE_SIZE=" + cacheSizeKb +
+                ";QUERY_CACHE_SIZE=" + queryCacheSize +
+                ";LOCK_TIMEOUT=" + lockTimeout.toMillis() +
+                ";WRITE_DELAY=" + writeDelay.toMillis() +
+                ";AUTO_COMPACT_FILL_RATE=" + autoCompactFillRate +
+                ";MAX_COMPACT_TIME=" + maxCompactTime.toMillis();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+
+import java.util.Map;
+
+/**
+ * Справочники в памяти: GET /actuator/dictionaries - размеры, POST /actuator/dictionaries - перезагрузка из БД.
+ * Фильмы в кэше ссылаются на жанры и MPA-рейтинги прежней загрузки, поэтому после перезагрузки кэш фильмов
+ * очищается: иначе новый ETag фильма отдавался бы со старыми названиями.
+ */
+@Component
+@Endpoint(id = "dictionaries")
+@RequiredArgsConstructor
+public class DictionaryEndpoint {
+    private final DictionaryRegistry dictionaries;
+    // кэша нет, если кэширование выключено (filmorate.cache.enabled=false)
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    @ReadOperation
+    public Map<String, Integer> sizes() {
+        return Map.of("genres", dictionaries.getGenres().size(), "mpa", dictionaries.getMpas().size());
+    }
+
+    @WriteOperation
+    public Map<String, Integer> reload() {
+        dictionaries.reload();
+        cacheManager.ifAvailable(manager -> {
+            final Cache films = manager.getCache(CacheConfig.FILMS);
+            if (films != null) {
+                films.clear();
+            }
+        });
+        return sizes();
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки кэшей сущностей: filmorate.cache.specs.[films|users].max-size / ttl.
+ */
+@Data
+@ConfigurationProperties(prefix = "filmorate.cache")
+public class EntityCacheProperties {
+    private boolean enabled = true;
+    private Map<String, Spec> specs = new HashMap<>();
+
+    @Data
+    public static class Spec {
+        private long maxSize = 1000;
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+}
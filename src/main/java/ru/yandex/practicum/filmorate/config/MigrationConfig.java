@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class MigrationConfig {
+    // время миграции схемы при старте: метрика filmorate.schema.migration с тегом applied = true/false;
+    // на актуальной БД миграции не выполняются, и время не зависит от объема данных
+    @Bean
+    public FlywayMigrationStrategy timedMigrationStrategy(ObjectProvider<MeterRegistry> registry) {
+        return flyway -> {
+            final long start = System.nanoTime();
+            final MigrateResult result = flyway.migrate();
+            final long elapsed = System.nanoTime() - start;
+            registry.ifAvailable(meterRegistry -> Timer.builder("filmorate.schema.migration")
+                    .description("Время применения миграций схемы БД при старте")
+                    .tag("applied", String.valueOf(result.migrationsExecuted > 0))
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS));
+            log.info("Миграции БД: применено {}, версия схемы {}, заняло {} мс", result.migrationsExecuted,
+                    result.targetSchemaVersion == null ? result.initialSchemaVersion : result.targetSchemaVersion,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+        };
+    }
+}
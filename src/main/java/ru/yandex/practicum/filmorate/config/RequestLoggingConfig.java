@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+@Slf4j
+@Configuration
+public class RequestLoggingConfig {
+
+    // выборка запросов для журнала Logbook: filmorate.logbook.sample-rate - доля журналируемых запросов от 0 до 1.
+    // Решение принимается до чтения тела, поэтому не попавшие в выборку запросы не буферизуются и не форматируются;
+    // исключения logbook.predicate.exclude применяет сам Logbook поверх этого условия.
+    // Потоковая выдача NDJSON (GET /films и /users с Accept: application/x-ndjson) не журналируется никогда:
+    // Logbook копирует тело журналируемого ответа в память целиком, а путь у нее тот же, что у обычного списка,
+    // поэтому исключить ее в logbook.predicate.exclude нельзя
+    @Bean
+    public Predicate<HttpRequest> requestCondition(@Value("${filmorate.logbook.sample-rate:1.0}") double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("filmorate.logbook.sample-rate должен быть от 0 до 1: " + sampleRate);
+        }
+        final Predicate<HttpRequest> notStreaming = request -> !acceptsNdjson(request);
+        if (sampleRate == 1) {
+            return notStreaming;
+        }
+        log.info("В журнал запросов попадает {}% запросов", sampleRate * 100);
+        return notStreaming.and(request -> ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private static boolean acceptsNdjson(HttpRequest request) {
+        final String accept = request.getHeaders().getFirst("Accept");
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Метрики SQL-запросов по именам констант хранилищ: время выполнения filmorate.sql.query,
+ * число прочитанных или измененных строк filmorate.sql.rows и число запросов на один HTTP-запрос
+ * filmorate.http.statements. Запрос получает имя вида FilmDbStorage.FIND_BY_ID_QUERY по тексту константы,
+ * сгенерированный SQL (SimpleJdbcInsert) - вида "insert films", остальное попадает в "other".
+ * Гистограммы включаются настройками management.metrics.distribution.*, а не здесь.
+ */
+@Slf4j
+public class SqlMetrics {
+    public static final String QUERY_TIMER = "filmorate.sql.query";
+    public static final String QUERY_ROWS = "filmorate.sql.rows";
+    public static final String REQUEST_STATEMENTS = "filmorate.http.statements";
+    static final String OTHER = "other";
+
+    // ограничение на число запомненных текстов SQL: произвольные запросы не должны раздувать карту
+    private static final int MAX_RESOLVED = 1024;
+    private static final Pattern WRITE_TARGET = Pattern.compile(
+            "^\\s*(INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|MERGE\\s+INTO)\\s+\"?(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final ThreadLocal<int[]> STATEMENTS_IN_REQUEST = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+
+    public SqlMetrics(MeterRegistry registry, Collection<Class<?>> storages) {
+        this.registry = registry;
+        storages.forEach(this::registerQueries);
+        log.info("Для метрик SQL зарегистрировано {} именованных запросов", names.size());
+    }
+
+    // имена запросов - статические строковые константы класса хранилища
+    private void registerQueries(Class<?> storage) {
+        for (Field field : storage.getDeclaredFields()) {
+            final int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || field.getType() != String.class) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                final String sql = (String) field.get(null);
+                if (sql != null && !sql.isBlank()) {
+                    names.putIfAbsent(sql, storage.getSimpleName() + "." + field.getName());
+                }
+            } catch (IllegalAccessException | RuntimeException exception) {
+                log.warn("Не удалось прочитать константу {}.{}: {}", storage.getSimpleName(), field.getName(),
+                        exception.getMessage());
+            }
+        }
+    }
+
+    public String queryName(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        final String name = names.get(sql);
+        if (name != null) {
+            return name;
+        }
+        final String derived = deriveName(sql);
+        if (names.size() < MAX_RESOLVED) {
+            names.putIfAbsent(sql, derived);
+        }
+        return derived;
+    }
+
+    public void recordExecution(String query, long nanos) {
+        timers.computeIfAbsent(query, name -> Timer.builder(QUERY_TIMER)
+                        .description("Время выполнения SQL-запроса")
+                        .tag("query", name)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        final int[] statements = STATEMENTS_IN_REQUEST.get();
+        if (statements != null) {
+            statements[0]++;
+        }
+    }
+
+    public void recordRows(String query, long count) {
+        rows.computeIfAbsent(query, name -> DistributionSummary.builder(QUERY_ROWS)
+                        .description("Строки, прочитанные или измененные SQL-запросом")
+                        .baseUnit("rows")
+                        .tag("query", name)
+                        .register(registry))
+                .record(count);
+    }
+
+    // начинает подсчет SQL-запросов в текущем потоке
+    public void startRequest() {
+        STATEMENTS_IN_REQUEST.set(new int[1]);
+    }
+
+    // завершает подсчет и записывает число запросов с тегами обработчика; uri == null - запрос без обработчика
+    public int finishRequest(String method, String uri) {
+        final int[] statements = STATEMENTS_IN_REQUEST.get();
+        STATEMENTS_IN_REQUEST.remove();
+        final int count = statements == null ? 0 : statements[0];
+        if (uri != null) {
+            DistributionSummary.builder(REQUEST_STATEMENTS)
+                    .description("SQL-запросы, выполненные при обработке одного HTTP-запроса")
+                    .baseUnit("statements")
+                    .tags("method", method, "uri", uri)
+                    .register(registry)
+                    .record(count);
+        }
+        return count;
+    }
+
+    private static String deriveName(String sql) {
+        final Matcher matcher = WRITE_TARGET.matcher(sql);
+        if (!matcher.find()) {
+            return OTHER;
+        }
+        final String verb = matcher.group(1).split("\\s+")[0];
+        return verb.toLowerCase(Locale.ROOT) + " " + matcher.group(2).toLowerCase(Locale.ROOT);
+    }
+}
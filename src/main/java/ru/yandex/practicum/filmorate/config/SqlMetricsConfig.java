@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Метрики SQL-запросов (filmorate.sql.query, filmorate.sql.rows) и числа запросов на HTTP-запрос
+ * (filmorate.http.statements). Выключаются filmorate.sql.metrics.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.sql.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMetricsConfig {
+
+    // DataSource оборачивается сразу, а SqlMetrics подхватывается, когда Spring его создаст:
+    // до этого (миграции при старте) соединения выдаются без замеров
+    @Bean
+    public static BeanPostProcessor sqlMetricsDataSourcePostProcessor() {
+        final AtomicReference<SqlMetrics> metrics = new AtomicReference<>();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SqlMetrics sqlMetrics) {
+                    metrics.set(sqlMetrics);
+                }
+                if (!(bean instanceof DataSource dataSource) || bean instanceof SqlMetricsDataSource) {
+                    return bean;
+                }
+                return new SqlMetricsDataSource(dataSource, metrics::get);
+            }
+        };
+    }
+
+    // имена запросов берутся из констант всех @Repository-хранилищ, сами хранилища при этом не создаются
+    @Bean
+    public SqlMetrics sqlMetrics(MeterRegistry registry, ListableBeanFactory beanFactory) {
+        final List<Class<?>> storages = Arrays.stream(beanFactory.getBeanNamesForAnnotation(Repository.class))
+                .map(beanFactory::getType)
+                .filter(Objects::nonNull)
+                .<Class<?>>map(ClassUtils::getUserClass)
+                .toList();
+        return new SqlMetrics(registry, storages);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication
+    public OncePerRequestFilter sqlStatementsFilter(SqlMetrics sqlMetrics) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain chain) throws ServletException, IOException {
+                sqlMetrics.startRequest();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    // шаблон пути обработчика (/films/{id}), как в теге uri метрики http.server.requests
+                    sqlMetrics.finishRequest(request.getMethod(),
+                            (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+                }
+            }
+        };
+    }
+}
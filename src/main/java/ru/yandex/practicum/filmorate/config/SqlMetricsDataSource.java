@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Источник соединений, замеряющий SQL-запросы для {@link SqlMetrics}.
+ * Время выполнения считается от вызова execute* до его возврата, число строк - по обновленным строкам
+ * или по строкам, прочитанным из ResultSet к его закрытию. Текст запроса берется из prepareStatement,
+ * поэтому именованные константы хранилищ распознаются без разбора SQL.
+ */
+public class SqlMetricsDataSource extends DelegatingDataSource {
+    private final Supplier<SqlMetrics> metrics;
+
+    public SqlMetricsDataSource(DataSource target, Supplier<SqlMetrics> metrics) {
+        super(target);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection instrument(Connection connection) {
+        final SqlMetrics sqlMetrics = metrics.get();
+        if (sqlMetrics == null) {
+            // метрики еще не созданы (миграции при старте контекста) - соединение отдается как есть
+            return connection;
+        }
+        return proxy(Connection.class, connection, (method, args) -> {
+            final Object result = invoke(connection, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> proxy(PreparedStatement.class, result,
+                        timing(sqlMetrics, (Statement) result, (String) args[0]));
+                case "createStatement" -> proxy(Statement.class, result, timing(sqlMetrics, (Statement) result, null));
+                default -> result;
+            };
+        });
+    }
+
+    // preparedSql == null - обычный Statement, текст запроса передается в execute*
+    private static Handler timing(SqlMetrics sqlMetrics, Statement statement, String preparedSql) {
+        return (method, args) -> {
+            final String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            final String sql = preparedSql != null ? preparedSql
+                    : args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+            final String query = sqlMetrics.queryName(sql);
+            final long start = System.nanoTime();
+            final Object result;
+            try {
+                result = invoke(statement, method, args);
+            } finally {
+                sqlMetrics.recordExecution(query, System.nanoTime() - start);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return countingRows(sqlMetrics, query, resultSet);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                sqlMetrics.recordRows(query, ((Number) result).longValue());
+            } else if (result instanceof int[] counts) {
+                sqlMetrics.recordRows(query, sumOfUpdated(counts));
+            } else if (result instanceof long[] counts) {
+                sqlMetrics.recordRows(query, Arrays.stream(counts).map(count -> Math.max(count, 0)).sum());
+            }
+            return result;
+        };
+    }
+
+    private static ResultSet countingRows(SqlMetrics sqlMetrics, String query, ResultSet resultSet) {
+        final long[] read = new long[1];
+        final boolean[] closed = new boolean[1];
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            final Object result = invoke(resultSet, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if ((Boolean) result) {
+                        read[0]++;
+                    }
+                }
+                case "close" -> {
+                    if (!closed[0]) {
+                        closed[0] = true;
+                        sqlMetrics.recordRows(query, read[0]);
+                    }
+                }
+                default -> {
+                }
+            }
+            return result;
+        });
+    }
+
+    // SUCCESS_NO_INFO (-2) в пакетах не известно точно, такие записи не учитываются
+    private static long sumOfUpdated(int[] counts) {
+        return Arrays.stream(counts).mapToLong(count -> Math.max(count, 0)).sum();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    // equals и hashCode - по ссылке на обертку: Spring сравнивает соединения в транзакции именно с ней
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "SqlMetrics[" + target + "]";
+                    default -> handler.handle(method, args);
+                });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Диагностика закрепления виртуальных потоков за несущими потоками платформы.
+ * Виртуальный поток, заблокировавшийся внутри synchronized (или в нативном вызове), не отпускает свой
+ * несущий поток, и при нескольких таких блокировках обработка запросов останавливается.
+ * Монитор подписывается на событие JFR jdk.VirtualThreadPinned дольше threshold и пишет в лог место
+ * закрепления, а их количество - в счетчик filmorate.threads.pinned.
+ * На JVM без виртуальных потоков событие не возникает и монитор ничего не делает.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final Counter pinnedCounter;
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(Duration threshold, MeterRegistry registry) {
+        this.threshold = threshold;
+        this.pinnedCounter = Counter.builder("filmorate.threads.pinned")
+                .description("Количество закреплений виртуальных потоков дольше порога")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        log.info("Включена диагностика закрепления виртуальных потоков дольше {} мс", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        recording.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        final List<RecordedFrame> frames = event.getStackTrace() == null ? List.of()
+                : event.getStackTrace().getFrames();
+        log.warn("Виртуальный поток закреплен за несущим потоком на {} мс:\n\t{}", event.getDuration().toMillis(),
+                frames.stream()
+                        // верхние кадры - механизм парковки в JDK, интересно место ниже, где поток заблокировался
+                        .dropWhile(frame -> isJdkFrame(frame.getMethod().getType().getName()))
+                        .limit(LOGGED_FRAMES)
+                        .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                                + ":" + frame.getLineNumber())
+                        .collect(Collectors.joining("\n\t")));
+    }
+
+    private static boolean isJdkFrame(String className) {
+        return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.");
+    }
+}
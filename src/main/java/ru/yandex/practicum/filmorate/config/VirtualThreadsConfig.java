@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Режим обработки запросов в виртуальных потоках (spring.threads.virtual.enabled=true, профиль virtual-threads).
+ * Сами виртуальные потоки для Tomcat и @Scheduled включает Spring Boot на Java 21+; здесь - то, что им нужно
+ * рядом: ограничитель обращений к БД по размеру пула и диагностика закрепления потоков.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    // число разрешений filmorate.db.limiter.permits, по умолчанию (0) - размер пула соединений Hikari
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                int permits = environment.getProperty("filmorate.db.limiter.permits", Integer.class, 0);
+                // DataSource может быть уже обернут (метрики SQL) - пул ищется под обертками
+                final HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class);
+                if (permits <= 0 && hikari != null) {
+                    permits = hikari.getMaximumPoolSize();
+                }
+                if (permits <= 0) {
+                    // размер пула не задан явно - Hikari создаст пул по умолчанию
+                    permits = DEFAULT_POOL_SIZE;
+                }
+                final Duration timeout = environment.getProperty("filmorate.db.limiter.timeout", Duration.class,
+                        Duration.ofSeconds(5));
+                log.info("Обращения к БД ограничены {} одновременными соединениями, ожидание не дольше {} мс",
+                        permits, timeout.toMillis());
+                return new ConcurrencyLimitingDataSource(dataSource, permits, timeout);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimiterMetrics(DataSource dataSource) {
+        final ConcurrencyLimitingDataSource limiter =
+                DataSourceUnwrapper.unwrap(dataSource, ConcurrencyLimitingDataSource.class);
+        return registry -> {
+            if (limiter != null) {
+                Gauge.builder("filmorate.db.limiter.available", limiter,
+                                ConcurrencyLimitingDataSource::getAvailablePermits)
+                        .description("Свободные разрешения на обращение к БД")
+                        .register(registry);
+                Gauge.builder("filmorate.db.limiter.waiting", limiter, ConcurrencyLimitingDataSource::getWaitingThreads)
+                        .description("Потоки, ожидающие разрешения на обращение к БД")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.threads.pinning-monitor.enabled", havingValue = "true",
+            matchIfMissing = true)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${filmorate.threads.pinning-monitor.threshold:20ms}") Duration threshold, MeterRegistry registry) {
+        return new VirtualThreadPinningMonitor(threshold, registry);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Условные GET-ответы: ETag сравнивается с If-None-Match до чтения данных, поэтому при совпадении
+ * ответ 304 уходит без обращения к хранилищу и без сериализации тела. ETag выдается только вместе с телом:
+ * ответ об ошибке (например, 404 для несуществующего фильма) его не содержит.
+ * Справочники клиент может хранить filmorate.http.dictionaries-max-age без перепроверки,
+ * фильмы - только с перепроверкой (no-cache), которая при неизменном фильме стоит одного ответа 304.
+ */
+@Component
+public class ConditionalResponses {
+    private final CacheControl dictionariesCacheControl;
+    private final CacheControl filmsCacheControl = CacheControl.noCache();
+
+    public ConditionalResponses(@Value("${filmorate.http.dictionaries-max-age:1h}") Duration dictionariesMaxAge) {
+        dictionariesCacheControl = CacheControl.maxAge(dictionariesMaxAge).cachePublic();
+    }
+
+    public <T> ResponseEntity<T> dictionary(WebRequest request, String eTag, Supplier<T> body) {
+        return respond(request, eTag, dictionariesCacheControl, body);
+    }
+
+    public <T> ResponseEntity<T> film(WebRequest request, String eTag, Supplier<T> body) {
+        return respond(request, eTag, filmsCacheControl, body);
+    }
+
+    private static <T> ResponseEntity<T> respond(WebRequest request, String eTag, CacheControl cacheControl,
+                                                 Supplier<T> body) {
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        // тело читается до записи заголовков: если его нет, исключение уходит в ErrorHandler без ETag
+        final T value = body.get();
+        return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(value);
+    }
+
+    // слабое сравнение, как требует HTTP для If-None-Match: W/"x" совпадает с "x";
+    // "*" не совпадает ни с чем, так как до чтения неизвестно, существует ли ресурс
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            if (tag.equals(eTag) || tag.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,78 +1,153 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.service.film.FilmService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @Slf4j
 @RequiredArgsConstructor
 @RequestMapping("/films")
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final ConditionalResponses responses;
 
     @GetMapping
-    public Collection<Film> findAll() {
-        log.info("Методом GET запрошен список фильмов");
-        return filmService.findAll();
+    public Collection<Film> findAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                    @RequestParam(required = false) @Positive @Max(MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Методом GET запрошен список фильмов");
+            return filmService.findAll();
+        }
+        log.debug("Методом GET запрошена страница фильмов после ID = {} размером {}", after, limit);
+        return filmService.findPage(after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    // потоковая выдача в формате NDJSON: каждая строка ответа - один JSON-объект
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.debug("Методом GET запрошена потоковая выдача всех фильмов");
+        StreamingResponseBody body = outputStream -> filmService.streamAll(film -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(film));
+                outputStream.write('\n');
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
-    public Film findById(@PathVariable Long id) {
-        log.info("Методом GET запрошен фильм с ID = " + id);
-        return filmService.findOne(id);
+    public ResponseEntity<Film> findById(@PathVariable Long id, WebRequest request) {
+        log.debug("Методом GET запрошен фильм с ID = {}", id);
+        return responses.film(request, filmService.getETag(id), () -> filmService.findOne(id));
     }
 
     @PostMapping
     public Film create(@Valid @RequestBody Film film) {
-        log.info("Началось добавление фильма методом POST");
+        log.debug("Началось добавление фильма методом POST");
         final Film newFilm = filmService.create(film);
-        log.info("Закончилось добавление фильма {}", newFilm);
+        log.info("Закончилось добавление фильма с ID = {}", newFilm.getId());
         return newFilm;
     }
 
+    // массовый импорт: JSON-массив или NDJSON любого размера читается из тела запроса потоком
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult importAll(HttpServletRequest request) throws IOException {
+        log.debug("Начался массовый импорт фильмов методом POST");
+        final BulkImportResult result = filmService.importFilms(request.getInputStream());
+        log.info("Закончился массовый импорт фильмов: получено {}, импортировано {}, с ошибками {}",
+                result.getReceived(), result.getImported(), result.getFailed());
+        return result;
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
-        log.info("Началось обновление фильма c ID = {} методом PUT", film.getId());
+        log.debug("Началось обновление фильма c ID = {} методом PUT", film.getId());
         final Film updatedFilm = filmService.update(film);
-        log.info("Закончилось обновление фильма {}", updatedFilm);
+        log.info("Закончилось обновление фильма с ID = {}", updatedFilm.getId());
         return updatedFilm;
     }
 
     @DeleteMapping("/{id}")
     public Film delete(@PathVariable Long id) {
-        log.info("Поступил запрос на удаление фильма с ID = {}", id);
+        log.debug("Поступил запрос на удаление фильма с ID = {}", id);
         final Film deletedFilm = filmService.delete(id);
-        log.info("Закончилось удаление фильма {}", deletedFilm);
+        log.info("Закончилось удаление фильма с ID = {}", id);
         return deletedFilm;
     }
 
     @GetMapping("/popular")
-    public Collection<Film> findPopular(@RequestParam(defaultValue = "10") @Positive Integer count) {
-        log.info("Методом GET запрошен список популярных фильмов в количестве {}", count);
-        return filmService.findPopular(count);
+    public Collection<Film> findPopular(@RequestParam(defaultValue = "10") @Positive Integer count,
+                                        @RequestParam(required = false) Integer genreId,
+                                        @RequestParam(required = false) @Positive Integer year) {
+        log.debug("Методом GET запрошен список популярных фильмов в количестве {} (жанр ID = {}, год {})",
+                count, genreId, year);
+        return filmService.findPopular(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    public Collection<Film> search(@RequestParam String query,
+                                   @RequestParam(defaultValue = "title,description") List<String> by,
+                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) @Positive @Max(MAX_PAGE_SIZE)
+                                   Integer limit) {
+        log.debug("Методом GET запрошен поиск фильмов по запросу \"{}\" в полях {}", query, by);
+        return filmService.search(query, by, limit);
+    }
+
+    @GetMapping("/common")
+    public Collection<Film> findCommon(@RequestParam Long userId, @RequestParam Long friendId) {
+        log.debug("Методом GET запрошен список общих фильмов пользователей ID = {} и ID = {}", userId, friendId);
+        return filmService.findCommon(userId, friendId);
     }
 
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable Long id,
                         @PathVariable Long userId) {
-        log.info("Началось обновление фильма c ID = {} методом PUT для добавления лайка от пользователя c ID = {}",
+        log.debug("Началось обновление фильма c ID = {} методом PUT для добавления лайка от пользователя c ID = {}",
                 id, userId);
         filmService.addLike(id, userId);
         log.info("Закончилось добавление фильму ID = {} лайка от пользователя ID = {}", id, userId);
     }
 
+    // пачка лайков и их отмен (liked = false) записывается в БД асинхронно через буфер
+    @PostMapping("/likes")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void addLikes(@Valid @RequestBody List<LikeChange> changes) {
+        log.debug("Методом POST получена пачка из {} лайков", changes.size());
+        filmService.addLikes(changes);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     // --> userId whom like was removed for the film
     public Long deleteLike(@PathVariable Long id,
                            @PathVariable Long userId) {
-        log.info("Началось удаление лайка от пользователя ID = {} у фильма c ID = {} методом DELETE",
+        log.debug("Началось удаление лайка от пользователя ID = {} у фильма c ID = {} методом DELETE",
                 userId, id);
         filmService.deleteLike(id, userId);
         log.info("Закончилось удаление лайка от пользователя ID = {} у фильма c ID = {}", userId, id);
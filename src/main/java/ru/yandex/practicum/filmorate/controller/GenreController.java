@@ -2,10 +2,12 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.film.GenreService;
 
@@ -17,16 +19,17 @@ import java.util.Collection;
 @RequestMapping("/genres")
 public class GenreController {
     private final GenreService genreService;
+    private final ConditionalResponses responses;
 
     @GetMapping
-    public Collection<Genre> findAll() {
-        log.info("Методом GET запрошен список жанров");
-        return genreService.findAll();
+    public ResponseEntity<Collection<Genre>> findAll(WebRequest request) {
+        log.debug("Методом GET запрошен список жанров");
+        return responses.dictionary(request, genreService.getETag(), genreService::findAll);
     }
 
     @GetMapping("/{id}")
-    public Genre getGenre(@PathVariable("id") Integer id) {
-        log.info("Методом GET запрошен список MPA-рейтингов");
-        return genreService.findById(id);
+    public ResponseEntity<Genre> getGenre(@PathVariable("id") Integer id, WebRequest request) {
+        log.debug("Методом GET запрошен жанр с ID = {}", id);
+        return responses.dictionary(request, genreService.getETag(), () -> genreService.findById(id));
     }
 }
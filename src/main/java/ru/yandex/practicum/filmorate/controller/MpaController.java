@@ -2,10 +2,12 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.film.MpaService;
 
@@ -17,16 +19,17 @@ import java.util.Collection;
 @RequestMapping("/mpa")
 public class MpaController {
     private final MpaService mpaService;
+    private final ConditionalResponses responses;
 
     @GetMapping
-    public Collection<Mpa> findAll() {
-        log.info("Методом GET запрошен список MPA-рейтингов");
-        return mpaService.findAll();
+    public ResponseEntity<Collection<Mpa>> findAll(WebRequest request) {
+        log.debug("Методом GET запрошен список MPA-рейтингов");
+        return responses.dictionary(request, mpaService.getETag(), mpaService::findAll);
     }
 
     @GetMapping("/{id}")
-    public Mpa getGenre(@PathVariable("id") Integer id) {
-        log.info("Получен GET-запрос на получение MPA по ID = : " + id);
-        return mpaService.findById(id);
+    public ResponseEntity<Mpa> getGenre(@PathVariable("id") Integer id, WebRequest request) {
+        log.debug("Методом GET запрошен MPA-рейтинг с ID = {}", id);
+        return responses.dictionary(request, mpaService.getETag(), () -> mpaService.findById(id));
     }
 }
@@ -1,12 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.film.FilmService;
 import ru.yandex.practicum.filmorate.service.user.UserService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 
 @RestController
@@ -14,56 +27,114 @@ import java.util.Collection;
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<User> findAll() {
-        log.info("Методом GET запрошен список пользователей");
-        return userService.findAll();
+    public Collection<User> findAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                    @RequestParam(required = false) @Positive @Max(MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Методом GET запрошен список пользователей");
+            return userService.findAll();
+        }
+        log.debug("Методом GET запрошена страница пользователей после ID = {} размером {}", after, limit);
+        return userService.findPage(after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    // потоковая выдача в формате NDJSON: каждая строка ответа - один JSON-объект
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.debug("Методом GET запрошена потоковая выдача всех пользователей");
+        StreamingResponseBody body = outputStream -> userService.streamAll(user -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(user));
+                outputStream.write('\n');
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping
     public User create(@Valid @RequestBody User user) {
-        log.info("Началось добавление пользователя методом POST");
+        log.debug("Началось добавление пользователя методом POST");
         final User newUser = userService.create(user);
-        log.info("Закончилось добавление пользователя {}", newUser);
+        log.info("Закончилось добавление пользователя с ID = {}", newUser.getId());
         return newUser;
     }
 
+    // массовый импорт: JSON-массив или NDJSON любого размера читается из тела запроса потоком
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult importAll(HttpServletRequest request) throws IOException {
+        log.debug("Начался массовый импорт пользователей методом POST");
+        final BulkImportResult result = userService.importUsers(request.getInputStream());
+        log.info("Закончился массовый импорт пользователей: получено {}, импортировано {}, с ошибками {}",
+                result.getReceived(), result.getImported(), result.getFailed());
+        return result;
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User user) {
-        log.info("Началось обновление пользователя c ID = {} методом PUT", user.getId());
+        log.debug("Началось обновление пользователя c ID = {} методом PUT", user.getId());
         final User updatedUser = userService.update(user);
-        log.info("Закончилось обновление пользователя {}", updatedUser);
+        log.info("Закончилось обновление пользователя с ID = {}", updatedUser.getId());
         return updatedUser;
     }
 
     @DeleteMapping("/{id}")
     public User delete(@PathVariable Long id) {
-        log.info("Поступил запрос на удаление пользователя с ID = {} методом DELETE", id);
+        log.debug("Поступил запрос на удаление пользователя с ID = {} методом DELETE", id);
         final User deletedUser = userService.delete(id);
-        log.info("Закончилось удаление пользователя {}", deletedUser);
+        log.info("Закончилось удаление пользователя с ID = {}", id);
         return deletedUser;
     }
 
     @GetMapping("/{id}/friends")
     public Collection<User> findAllFriends(@PathVariable Long id) {
-        log.info("Методом GET запрошен список всех друзей пользователя с ID = {}", id);
+        log.debug("Методом GET запрошен список всех друзей пользователя с ID = {}", id);
         return userService.findAllFriends(id);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
     public Collection<User> findCommonFriends(@PathVariable Long id,
                                               @PathVariable Long otherId) {
-        log.info("Методом GET запрошен список общих друзей пользователей с ID = {} и {}",
+        log.debug("Методом GET запрошен список общих друзей пользователей с ID = {} и {}",
                 id, otherId);
         return userService.findCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/count")
+    public int countFriends(@PathVariable Long id) {
+        log.debug("Методом GET запрошено количество друзей пользователя с ID = {}", id);
+        return userService.countFriends(id);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> findFriendSuggestions(@PathVariable Long id,
+                                                  @RequestParam(defaultValue = "10") @Positive
+                                                  @Max(MAX_PAGE_SIZE) Integer limit) {
+        log.debug("Методом GET запрошены рекомендации друзей для пользователя с ID = {} в количестве {}", id, limit);
+        return userService.findFriendSuggestions(id, limit);
+    }
+
+    // фильмы, которые лайкнули пользователи с самыми похожими лайками, а сам пользователь - еще нет
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> findRecommendations(@PathVariable Long id,
+                                                @RequestParam(defaultValue = "10") @Positive
+                                                @Max(MAX_PAGE_SIZE) Integer count) {
+        log.debug("Методом GET запрошены рекомендации фильмов для пользователя с ID = {} в количестве {}", id, count);
+        return filmService.findRecommendations(id, count);
+    }
+
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable Long id,
                           @PathVariable Long friendId) {
-        log.info("Началось обновление пользователя c ID = {} методом PUT для добавления ему друга c ID = {}",
+        log.debug("Началось обновление пользователя c ID = {} методом PUT для добавления ему друга c ID = {}",
                 id, friendId);
         userService.addFriend(id, friendId);
         log.info("Закончилось добавление пользователю ID = {} друга ID = {}", id, friendId);
@@ -72,7 +143,7 @@ public class UserController {
     @DeleteMapping("/{id}/friends/{friendId}")
     public void deleteFriend(@PathVariable Long id,
                              @PathVariable Long friendId) {
-        log.info("Началось удаление друга ID = {} у пользователя c ID = {} методом DELETE",
+        log.debug("Началось удаление друга ID = {} у пользователя c ID = {} методом DELETE",
                  friendId, id);
         userService.deleteFriend(id, friendId);
         log.info("Закончилось удаление друга ID = {} у пользователя c ID = {}", friendId, id);
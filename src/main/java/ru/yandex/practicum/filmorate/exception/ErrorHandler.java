@@ -2,11 +2,14 @@ package ru.yandex.practicum.filmorate.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 @Slf4j
@@ -41,6 +44,29 @@ public class ErrorHandler {
         return new ErrorResponse(exception.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleRequestParamMissing(final MissingServletRequestParameterException exception) {
+        log.error("В запросе нет обязательного параметра", exception);
+        return new ErrorResponse(exception.getMessage());
+    }
+
+    // соединение с БД не получено за отведенное время: пул или ограничитель обращений к БД перегружен
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleDatabaseOverload(final Exception exception) {
+        log.error("Нет свободного соединения с БД", exception);
+        return new ErrorResponse("Сервис перегружен, повторите запрос позже.");
+    }
+
+    // запись отложена из-за недоступной БД, и очередь на запись заполнена
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceUnavailable(final ServiceUnavailableException exception) {
+        log.error(exception.getMessage());
+        return new ErrorResponse("Сервис перегружен, повторите запрос позже.");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(final Throwable exception) {
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отчет о пакетном импорте: сколько записей получено, сохранено и отклонено, с ошибками по записям.
+ */
+@Data
+public class BulkImportResult {
+    private long received;
+    private long imported;
+    private long failed;
+    // ошибки по отдельным записям (index - порядковый номер записи во входном потоке, начиная с 0)
+    private List<RecordError> errors = new ArrayList<>();
+
+    public record RecordError(long index, String error) {
+    }
+}
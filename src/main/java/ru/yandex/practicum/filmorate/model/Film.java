@@ -1,10 +1,11 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -14,11 +15,12 @@ import java.util.Set;
 @Data
 public class Film {
     private Long id;
-    private @NotNull @NotBlank String name;
+    private @NotNull @NotBlank @Size(max = 40) String name;
     private @Size(max = 200) String description;
     private LocalDate releaseDate;
     private @Positive int duration;
-    private Set<Long> likeUserIds = new HashSet<>();
+    @JsonDeserialize(as = LongHashSet.class)
+    private Set<Long> likeUserIds = new LongHashSet();
 
     private Mpa mpa;
     private List<Genre> genres;
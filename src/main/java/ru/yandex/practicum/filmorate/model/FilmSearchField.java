@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Film field searched by GET /films/search.
+ */
+public enum FilmSearchField {
+    TITLE,
+    DESCRIPTION
+}
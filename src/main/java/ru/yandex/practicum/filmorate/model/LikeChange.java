@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Изменение лайка: пользователь ставит лайк фильму (liked = true) или убирает его (liked = false).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeChange {
+    @NotNull
+    private Long filmId;
+    @NotNull
+    private Long userId;
+    private boolean liked = true;
+}
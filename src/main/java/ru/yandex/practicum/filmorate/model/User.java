@@ -1,10 +1,11 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -16,18 +17,22 @@ public class User {
 
     @NotEmpty
     @Email(message = "Некорректный email.")
+    @Size(max = 100)
     private String email;
 
     @NotBlank(message = "Логин не может быть пустым.")
     @Pattern(regexp = "\\S*", message = "Логин содержит пробелы.")
     // S - любой непробельный символ, * - ноль или более раз
+    @Size(max = 100)
     private String login;
 
+    @Size(max = 100)
     private String name;
 
     @NotNull
     @PastOrPresent(message = "Некорректно указана дата рождения.")
     private LocalDate birthday;
 
-    private Set<Long> friendIds = new HashSet<>();
+    @JsonDeserialize(as = LongHashSet.class)
+    private Set<Long> friendIds = new LongHashSet();
 }
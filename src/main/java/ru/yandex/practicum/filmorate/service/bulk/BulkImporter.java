@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.service.bulk;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Потоковый импорт записей из JSON-массива или NDJSON произвольного размера.
+ * Записи разбираются по одной, проверяются и пишутся пачками по filmorate.bulk.batch-size,
+ * каждая пачка - в отдельной транзакции хранилища. Ошибка в записи не останавливает импорт:
+ * если БД отклонила пачку, ее записи сохраняются по одной, и в отчет попадают только отклоненные.
+ */
+@Slf4j
+@Component
+public class BulkImporter {
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public BulkImporter(ObjectMapper objectMapper, Validator validator,
+                        @Value("${filmorate.bulk.batch-size:1000}") int batchSize,
+                        @Value("${filmorate.bulk.max-reported-errors:1000}") int maxReportedErrors) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * @param validation дополнительная проверка записи: бросает исключение, если запись нельзя сохранить
+     * @param writer     сохраняет пачку проверенных записей в одной транзакции
+     */
+    public <T> BulkImportResult importRecords(InputStream input, Class<T> type,
+                                              Consumer<T> validation, Consumer<List<T>> writer) throws IOException {
+        final BulkImportResult result = new BulkImportResult();
+        final List<T> batch = new ArrayList<>(batchSize);
+        final List<Long> batchIndexes = new ArrayList<>(batchSize);
+
+        // MappingIterator сам раскрывает JSON-массив верхнего уровня и читает NDJSON построчно
+        try (MappingIterator<T> records = objectMapper.readerFor(type).readValues(input)) {
+            long index = 0;
+            while (nextRecordExists(records, index, result)) {
+                try {
+                    final T record = records.nextValue();
+                    validate(record);
+                    validation.accept(record);
+                    batch.add(record);
+                    batchIndexes.add(index);
+                } catch (JsonParseException exception) {
+                    // после синтаксической ошибки продолжить разбор потока нельзя
+                    addError(result, index, "Некорректный JSON: " + exception.getOriginalMessage());
+                    result.setReceived(index + 1);
+                    break;
+                } catch (IOException | RuntimeException exception) {
+                    addError(result, index, exception.getMessage());
+                }
+                index++;
+                result.setReceived(index);
+                if (batch.size() == batchSize) {
+                    flush(batch, batchIndexes, writer, result);
+                }
+            }
+        }
+        flush(batch, batchIndexes, writer, result);
+        log.info("Импорт {}: получено записей - {}, сохранено - {}, с ошибками - {}", type.getSimpleName(),
+                result.getReceived(), result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private boolean nextRecordExists(MappingIterator<?> records, long index, BulkImportResult result) {
+        try {
+            return records.hasNextValue();
+        } catch (IOException | RuntimeException exception) {
+            addError(result, index, "Некорректный JSON: " + exception.getMessage());
+            return false;
+        }
+    }
+
+    private <T> void validate(T record) {
+        final Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private <T> void flush(List<T> batch, List<Long> batchIndexes, Consumer<List<T>> writer,
+                           BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writer.accept(batch);
+            result.setImported(result.getImported() + batch.size());
+        } catch (DataAccessException | ValidationException exception) {
+            // транзакция пачки откатилась целиком: повторяем по одной записи, чтобы найти отклоненные
+            log.warn("Не удалось сохранить пачку из {} записей, записи сохраняются по одной: {}",
+                    batch.size(), errorMessage(exception));
+            for (int i = 0; i < batch.size(); i++) {
+                writeOne(batch.get(i), batchIndexes.get(i), writer, result);
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private <T> void writeOne(T record, long index, Consumer<List<T>> writer, BulkImportResult result) {
+        try {
+            writer.accept(List.of(record));
+            result.setImported(result.getImported() + 1);
+        } catch (DataAccessException | ValidationException exception) {
+            log.error("Не удалось сохранить запись {}: {}", index, errorMessage(exception));
+            addError(result, index, "Запись не сохранена: " + errorMessage(exception));
+        }
+    }
+
+    // сообщение DataAccessException содержит весь текст SQL-запроса; в отчет идет только причина от БД
+    private static String errorMessage(RuntimeException exception) {
+        if (exception instanceof DataAccessException dataAccessException) {
+            return dataAccessException.getMostSpecificCause().getMessage();
+        }
+        return exception.getMessage();
+    }
+
+    private void addError(BulkImportResult result, long index, String error) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new BulkImportResult.RecordError(index, error));
+        }
+    }
+}
@@ -1,29 +1,64 @@
 package ru.yandex.practicum.filmorate.service.film;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.service.bulk.BulkImporter;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.utils.FilmValidations;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final GenreStorage genreStorage;
+    private final DictionaryRegistry dictionaries;
+    private final BulkImporter bulkImporter;
+    private final LikeBuffer likeBuffer;
+    private final FilmVersions versions;
 
     public Collection<Film> findAll() {
         return filmStorage.findAll();
     }
 
+    public Collection<Film> findPage(Long after, Integer limit) {
+        return filmStorage.findPage(after == null ? 0 : after, limit);
+    }
+
+    public void streamAll(Consumer<Film> action) {
+        filmStorage.streamAll(action);
+    }
+
     public Film findOne(Long id) {
-        return filmStorage.findOneById(id);
+        final Film film = filmStorage.findOneById(id);
+        FilmValidations.validateFilmNotNull(film, id);
+        return film;
+    }
+
+    // версия читается до самого фильма: при одновременном изменении ответ получит старый ETag и не закэшируется
+    // у клиента дольше, чем до следующего запроса
+    public String getETag(Long id) {
+        return versions.eTag(id, dictionaries.getVersion());
     }
 
     public Film create(Film film) {
@@ -33,32 +68,95 @@ public class FilmService {
                 genres.stream().allMatch(g -> genreStorage.exists(g.getId()))
                 )
         ) {
-            return filmStorage.create(film);
+            final Film newFilm = filmStorage.create(film);
+            versions.bump(newFilm.getId());
+            return newFilm;
         }
         return null;
     }
 
+    public BulkImportResult importFilms(InputStream input) throws IOException {
+        return bulkImporter.importRecords(input, Film.class, film -> {
+            FilmValidations.prepareCreation(film, dictionaries);
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> genreStorage.exists(genre.getId()));
+            }
+        }, films -> filmStorage.createAll(films).forEach(film -> versions.bump(film.getId())));
+    }
+
     public Film update(Film film) {
-        return filmStorage.update(film);
+        final Film updatedFilm = filmStorage.update(film);
+        versions.bump(updatedFilm.getId());
+        return updatedFilm;
     }
 
     public Film delete(Long id) {
-        return filmStorage.delete(id);
+        final Film deletedFilm = filmStorage.delete(id);
+        versions.bump(id);
+        return deletedFilm;
+    }
+
+    public Collection<Film> findPopular(Integer count, Integer genreId, Integer year) {
+        if (genreId != null) {
+            genreStorage.exists(genreId);
+        }
+        return filmStorage.findPopular(count, genreId, year);
+    }
+
+    // by - названия полей поиска: title, description
+    public Collection<Film> search(String query, List<String> by, Integer limit) {
+        final Set<FilmSearchField> fields = EnumSet.noneOf(FilmSearchField.class);
+        for (String field : by) {
+            try {
+                fields.add(FilmSearchField.valueOf(field.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException exception) {
+                log.error("Получено неизвестное поле поиска фильмов: {}", field);
+                throw new ValidationException("Искать можно только по полям title и description");
+            }
+        }
+        return filmStorage.search(query, fields, limit);
+    }
+
+    public Collection<Film> findRecommendations(Long userId, Integer count) {
+        userStorage.exists(userId);
+        return filmStorage.findRecommended(userId, count);
     }
 
-    public Collection<Film> findPopular(Integer count) {
-        return filmStorage.findPopular(count);
+    public Collection<Film> findCommon(Long userId, Long friendId) {
+        userStorage.exists(userId);
+        userStorage.exists(friendId);
+        return filmStorage.findCommon(userId, friendId);
     }
 
+    // без буфера существование фильма и пользователя проверяет само хранилище при записи лайка
     public void addLike(Long id, Long userId) {
-        if (userStorage.exists(userId)) {
+        if (likeBuffer.isSingleLikesBuffered()) {
+            validateLike(id, userId);
+            likeBuffer.add(new LikeChange(id, userId, true));
+        } else {
             filmStorage.addLike(id, userId);
+            versions.bump(id);
         }
     }
 
     public void deleteLike(Long id, Long userId) {
-        if (userStorage.exists(userId)) {
+        if (likeBuffer.isSingleLikesBuffered()) {
+            validateLike(id, userId);
+            likeBuffer.add(new LikeChange(id, userId, false));
+        } else {
             filmStorage.deleteLike(id, userId);
+            versions.bump(id);
         }
     }
+
+    // пачка лайков только ставится в буфер; лайки несуществующих фильмов и пользователей при записи пропускаются
+    public void addLikes(List<LikeChange> changes) {
+        likeBuffer.addAll(changes);
+    }
+
+    // в буфер попадают только лайки существующих фильмов и пользователей
+    private void validateLike(Long id, Long userId) {
+        userStorage.exists(userId);
+        FilmValidations.validateFilmNotNull(filmStorage.findOneById(id), id);
+    }
 }
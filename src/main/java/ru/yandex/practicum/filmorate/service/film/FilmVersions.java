@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Номера версий фильмов для ETag: версия меняется после создания, изменения и удаления фильма или его лайков.
+ * Номера выдаются одним счетчиком, который при старте начинается с текущего времени в микросекундах,
+ * поэтому после перезапуска приложения версии не повторяют выданные раньше. Хранятся версии только
+ * измененных после старта фильмов, у остальных - начальная.
+ */
+@Component
+public class FilmVersions {
+    private final AtomicLong lastVersion = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final long initialVersion = lastVersion.get();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public long get(long filmId) {
+        return versions.getOrDefault(filmId, initialVersion);
+    }
+
+    // вызывается после записи в хранилище и сброса кэша: прочитавший новую версию прочитает и новый фильм
+    public void bump(long filmId) {
+        versions.put(filmId, lastVersion.incrementAndGet());
+    }
+
+    // сильный ETag фильма в кавычках, как требует HTTP; в JSON фильма есть названия жанров и MPA-рейтинга,
+    // поэтому ETag включает и версию справочников
+    public String eTag(long filmId, long dictionariesVersion) {
+        return "\"" + filmId + "-" + get(filmId) + "-" + dictionariesVersion + "\"";
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.service.film;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
 import java.util.Collection;
@@ -11,6 +12,7 @@ import java.util.Collection;
 @RequiredArgsConstructor
 public class GenreService {
     private final GenreStorage genreStorage;
+    private final DictionaryRegistry dictionaries;
 
     public Collection<Genre> findAll() {
         return genreStorage.findAll();
@@ -19,4 +21,8 @@ public class GenreService {
     public Genre findById(int id) {
         return genreStorage.findOneById(id);
     }
-}
\ No newline at end of file
+
+    public String getETag() {
+        return dictionaries.getETag();
+    }
+}
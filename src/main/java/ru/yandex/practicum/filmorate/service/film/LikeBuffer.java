@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Буфер отложенной записи лайков.
+ * Для каждой пары фильм-пользователь хранится только последнее действие (лайк или его отмена),
+ * поэтому повторы и пары лайк/отмена схлопываются еще до записи в БД.
+ * Буфер сбрасывается в хранилище одной пачкой по таймеру filmorate.likes.flush-interval-ms
+ * или сразу при заполнении до filmorate.likes.buffer-capacity записей; в последнем случае
+ * добавляющий поток ждет окончания сброса, так что буфер не растет неограниченно.
+ * <p>
+ * Пока БД недоступна, несохраненные лайки возвращаются в буфер. Когда в нем накопится
+ * filmorate.likes.max-pending записей, новые лайки не принимаются (ServiceUnavailableException - ответ 503):
+ * клиент узнает о перегрузке сразу, а не получает 202 за лайк, который может не дождаться записи.
+ * Граница приблизительная: одновременные добавления могут превысить ее на число потоков.
+ */
+@Slf4j
+@Component
+public class LikeBuffer {
+    private final FilmStorage filmStorage;
+    private final FilmVersions versions;
+    private final int capacity;
+    private final int maxPending;
+    private final boolean singleLikesBuffered;
+    private final Map<LikeKey, Boolean> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Timer flushTimer;
+    private final Counter flushedLikes;
+    private final Counter failedFlushes;
+
+    public LikeBuffer(FilmStorage filmStorage, FilmVersions versions, MeterRegistry registry,
+                      @Value("${filmorate.likes.buffer-capacity:10000}") int capacity,
+                      @Value("${filmorate.likes.max-pending:100000}") int maxPending,
+                      @Value("${filmorate.likes.write-behind:false}") boolean singleLikesBuffered) {
+        this.filmStorage = filmStorage;
+        this.versions = versions;
+        this.capacity = capacity;
+        this.maxPending = maxPending;
+        this.singleLikesBuffered = singleLikesBuffered;
+        Gauge.builder("filmorate.likes.buffer.size", pending, Map::size)
+                .description("Количество лайков, ожидающих записи в БД")
+                .register(registry);
+        flushTimer = Timer.builder("filmorate.likes.flush")
+                .description("Время записи пачки лайков в БД")
+                .register(registry);
+        flushedLikes = Counter.builder("filmorate.likes.flushed")
+                .description("Количество лайков, записанных в БД")
+                .register(registry);
+        failedFlushes = Counter.builder("filmorate.likes.flush.failures")
+                .description("Количество неудачных попыток записать пачку лайков в БД")
+                .register(registry);
+    }
+
+    // true, если одиночные лайки через PUT/DELETE /films/{id}/like/{userId} тоже идут через буфер
+    public boolean isSingleLikesBuffered() {
+        return singleLikesBuffered;
+    }
+
+    public void add(LikeChange change) {
+        addAll(List.of(change));
+    }
+
+    // пачка, которая не помещается в буфер, отклоняется целиком
+    public void addAll(List<LikeChange> changes) {
+        if (pending.size() + changes.size() > maxPending) {
+            throw new ServiceUnavailableException("Буфер лайков заполнен: " + pending.size()
+                    + " лайков ожидают записи в БД");
+        }
+        changes.forEach(change ->
+                pending.put(new LikeKey(change.getFilmId(), change.getUserId()), change.isLiked()));
+        if (pending.size() >= capacity) {
+            flush();
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            // запись удаляется из буфера, только если ее не успели изменить;
+            // измененная за время сброса запись останется до следующего сброса
+            final List<LikeChange> changes = new ArrayList<>(pending.size());
+            for (Map.Entry<LikeKey, Boolean> entry : pending.entrySet()) {
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    changes.add(new LikeChange(entry.getKey().filmId(), entry.getKey().userId(), entry.getValue()));
+                }
+            }
+            write(changes);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        log.info("Остановка приложения: запись {} лайков из буфера", pending.size());
+        flush();
+    }
+
+    private void write(List<LikeChange> changes) {
+        try {
+            flushTimer.record(() -> filmStorage.applyLikes(changes));
+            changes.stream().map(LikeChange::getFilmId).distinct().forEach(versions::bump);
+            flushedLikes.increment(changes.size());
+            log.debug("Из буфера записано лайков: {}", changes.size());
+        } catch (DataAccessException exception) {
+            // несохраненные действия возвращаются в буфер, если их не заменили более новые;
+            // размер буфера ограничивают проверки в addAll, а не отказ от повторной записи
+            failedFlushes.increment();
+            log.error("Не удалось записать пачку из {} лайков, она будет записана повторно", changes.size(),
+                    exception);
+            changes.forEach(change -> pending.putIfAbsent(new LikeKey(change.getFilmId(), change.getUserId()),
+                    change.isLiked()));
+        }
+    }
+
+    private record LikeKey(long filmId, long userId) {
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.service.film;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
 import java.util.*;
@@ -11,6 +12,7 @@ import java.util.*;
 @RequiredArgsConstructor
 public class MpaService {
     private final MpaStorage mpaStorage;
+    private final DictionaryRegistry dictionaries;
 
     public Collection<Mpa> findAll() {
         return mpaStorage.findAll();
@@ -19,4 +21,8 @@ public class MpaService {
     public Mpa findById(Integer id) {
         return mpaStorage.findOneById(id);
     }
+
+    public String getETag() {
+        return dictionaries.getETag();
+    }
 }
@@ -3,24 +3,44 @@ package ru.yandex.practicum.filmorate.service.user;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.bulk.BulkImporter;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.utils.UserValidations;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserStorage userStorage;
+    private final BulkImporter bulkImporter;
 
     public Collection<User> findAll() {
         return userStorage.findAll();
     }
 
+    public Collection<User> findPage(Long after, Integer limit) {
+        return userStorage.findPage(after == null ? 0 : after, limit);
+    }
+
+    public void streamAll(Consumer<User> action) {
+        userStorage.streamAll(action);
+    }
+
     public User create(User user) {
         return userStorage.create(user);
     }
 
+    public BulkImportResult importUsers(InputStream input) throws IOException {
+        return bulkImporter.importRecords(input, User.class, UserValidations::prepareCreation,
+                userStorage::createAll);
+    }
+
     public User update(User user) {
         return userStorage.update(user);
     }
@@ -37,6 +57,14 @@ public class UserService {
         return userStorage.findCommonFriends(id, otherId);
     }
 
+    public int countFriends(Long id) {
+        return userStorage.countFriends(id);
+    }
+
+    public Collection<User> findFriendSuggestions(Long id, Integer limit) {
+        return userStorage.findFriendSuggestions(id, limit);
+    }
+
     public void addFriend(Long id, Long friendId) {
         userStorage.addFriend(id, friendId);
     }
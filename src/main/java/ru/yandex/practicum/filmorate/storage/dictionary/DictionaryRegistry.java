@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage.dictionary;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRowMapper;
+
+import java.util.List;
+
+/**
+ * Справочники жанров и MPA-рейтингов, загруженные в память при старте приложения.
+ * Записи лежат в массивах по индексу = ID, поэтому поиск и проверка ID выполняются за O(1) без SQL,
+ * а все фильмы ссылаются на одни и те же экземпляры Genre / Mpa (изменять их нельзя).
+ * После изменения справочников в БД достаточно вызвать reload().
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DictionaryRegistry {
+    private final JdbcTemplate jdbc;
+    private final GenreRowMapper genreMapper;
+    private final MpaRowMapper mpaMapper;
+
+    private static final String FIND_ALL_GENRES_QUERY = "SELECT * FROM genres ORDER BY genre_id";
+
+    private static final String FIND_ALL_MPA_QUERY = "SELECT * FROM mpa_dict ORDER BY mpa_id";
+
+    private volatile Dictionary<Genre> genres = new Dictionary<>(List.of(), new Genre[0]);
+    private volatile Dictionary<Mpa> mpas = new Dictionary<>(List.of(), new Mpa[0]);
+    // меняется при каждой загрузке справочников; начинается с текущего времени, чтобы не повторяться между запусками
+    private volatile long version;
+
+    @PostConstruct
+    public void reload() {
+        final List<Genre> genreList = jdbc.query(FIND_ALL_GENRES_QUERY, genreMapper);
+        final List<Mpa> mpaList = jdbc.query(FIND_ALL_MPA_QUERY, mpaMapper);
+
+        final Genre[] genresById = new Genre[maxId(genreList.stream().map(Genre::getId).toList()) + 1];
+        genreList.forEach(genre -> genresById[genre.getId()] = genre);
+        final Mpa[] mpasById = new Mpa[maxId(mpaList.stream().map(Mpa::getId).toList()) + 1];
+        mpaList.forEach(mpa -> mpasById[mpa.getId()] = mpa);
+
+        genres = new Dictionary<>(List.copyOf(genreList), genresById);
+        mpas = new Dictionary<>(List.copyOf(mpaList), mpasById);
+        version = Math.max(version + 1, System.currentTimeMillis());
+        log.info("Загружены справочники: жанров - {}, MPA-рейтингов - {}", genreList.size(), mpaList.size());
+    }
+
+    public List<Genre> getGenres() {
+        return genres.values();
+    }
+
+    public Genre findGenre(Integer id) {
+        return genres.find(id);
+    }
+
+    public boolean genreExists(Integer id) {
+        return genres.find(id) != null;
+    }
+
+    public List<Mpa> getMpas() {
+        return mpas.values();
+    }
+
+    public Mpa findMpa(Integer id) {
+        return mpas.find(id);
+    }
+
+    public boolean mpaExists(Integer id) {
+        return mpas.find(id) != null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // сильный ETag ответов со справочниками: общий для жанров и MPA-рейтингов, так как они загружаются вместе
+    public String getETag() {
+        return "\"dictionaries-" + version + "\"";
+    }
+
+    private static int maxId(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    // неизменяемый снимок справочника: при reload() подменяется целиком
+    private record Dictionary<T>(List<T> values, T[] byId) {
+        T find(Integer id) {
+            if (id == null || id < 0 || id >= byId.length) {
+                return null;
+            }
+            return byId[id];
+        }
+    }
+}
@@ -1,22 +1,42 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Primary;
-import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.utils.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.film.utils.FilmValidations;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.utils.GroupedLongArrays;
+import ru.yandex.practicum.filmorate.storage.user.utils.UserValidations;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
@@ -27,139 +47,479 @@ public class FilmDbStorage implements FilmStorage {
     private final FilmRowMapper mapper;
 
     private final GenreDbStorage genreDbStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmLikesIndex likesIndex;
+    private final FilmSearchIndex searchIndex;
+    private final DictionaryRegistry dictionaries;
+
+    // вставки компилируются (с чтением метаданных таблиц) один раз при старте и затем переиспользуются
+    private SimpleJdbcInsert filmInsert;
+
+    // сколько строк за раз драйвер вычитывает из ResultSet при потоковой выдаче всех фильмов
+    private static final int STREAM_FETCH_SIZE = 500;
 
     private static final String FIND_ALL_QUERY =
             """
-            SELECT f.film_id, f.name, f.description, f.release_date, f.duration,
-                   md.mpa_id, md.name AS mpa_name
+            SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_rating AS mpa_id
             FROM films AS f
-            LEFT JOIN mpa_dict AS md ON f.mpa_rating = md.mpa_id
             ORDER BY f.film_id""";
 
+    // keyset-пагинация: следующая страница начинается после последнего ID предыдущей
+    private static final String FIND_PAGE_QUERY =
+            """
+            SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_rating AS mpa_id
+            FROM films AS f
+            WHERE f.film_id > ?
+            ORDER BY f.film_id
+            LIMIT ?""";
+
     private static final String FIND_BY_ID_QUERY =
             """
-            SELECT f.film_id, f.name, f.description, f.release_date, f.duration,
-                   md.mpa_id, md.name AS mpa_name
+            SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_rating AS mpa_id
             FROM films AS f
-            LEFT JOIN mpa_dict AS md ON f.mpa_rating = md.mpa_id
             WHERE f.film_id = ?""";
 
-    private static final String UPDATE_QUERY = "UPDATE films SET name = ?, description = ?, release_date = ?, " +
-            "duration = ?, mpa_rating = ? WHERE film_id = ?";
+    // обновление одним запросом: не переданные name, description и release_date (null) не изменяются,
+    // из FINAL TABLE читается итоговая строка; пустой результат означает, что фильма нет
+    private static final String UPDATE_QUERY =
+            """
+            SELECT film_id, name, description, release_date, duration, mpa_rating AS mpa_id
+            FROM FINAL TABLE (UPDATE films
+                              SET name = COALESCE(?, name), description = COALESCE(?, description),
+                                  release_date = COALESCE(?, release_date), duration = ?, mpa_rating = ?
+                              WHERE film_id = ?)""";
+
+    // удаления с возвратом удаленных строк из OLD TABLE: жанры фильма, затем сам фильм
+    private static final String DELETE_FILM_GENRES_QUERY =
+            "SELECT genre_id FROM OLD TABLE (DELETE FROM film_genres WHERE film_id = ?) ORDER BY genre_id";
 
-    private static final String DELETE_FILM_QUERY = "DELETE FROM films WHERE film_id = ?";
+    private static final String DELETE_FILM_QUERY =
+            """
+            SELECT film_id, name, description, release_date, duration, mpa_rating AS mpa_id
+            FROM OLD TABLE (DELETE FROM films WHERE film_id = ?)""";
+
+    private static final String FILM_AND_USER_EXIST_QUERY = "SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?), " +
+            "EXISTS (SELECT 1 FROM users WHERE user_id = ?)";
 
-    private static final String FIND_POPULAR =
+    // ID популярных фильмов выбираются из FilmPopularityIndex, из БД читаются только сами фильмы
+    private static final String FIND_BY_IDS_QUERY =
             """
-            SELECT f.film_id, f.name, f.description, f.release_date, f.duration,
-                   md.mpa_id, md.name AS mpa_name
+            SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_rating AS mpa_id
             FROM films AS f
-            JOIN
-                (SELECT film_id,
-                        count(user_id) AS likes_count
-                 FROM film_likes
-                 GROUP BY film_id
-                 ORDER BY likes_count DESC
-                 LIMIT (?)) AS t ON f.film_id = t.film_id
-            LEFT JOIN mpa_dict AS md ON f.mpa_rating = md.mpa_id
-            ORDER BY t.likes_count DESC""";
+            WHERE f.film_id = ANY(?)""";
 
     private static final String DELETE_LIKE_QUERY = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
 
+    private static final String INSERT_FILM_QUERY = "INSERT INTO films (name, description, release_date, duration, " +
+            "mpa_rating) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_FILM_GENRE_QUERY = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+
+    // вставка лайка, только если его еще нет, а фильм и пользователь существуют: число вставленных строк 0 или 1
+    private static final String INSERT_LIKE_IF_ABSENT_QUERY = """
+            INSERT INTO film_likes (film_id, user_id)
+            SELECT f.film_id, u.user_id
+            FROM films AS f, users AS u
+            WHERE f.film_id = ? AND u.user_id = ?
+              AND NOT EXISTS (SELECT 1 FROM film_likes AS fl WHERE fl.film_id = f.film_id AND fl.user_id = u.user_id)""";
+
+    private static final String ADD_LIKES_COUNT_QUERY =
+            "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+
+    // проверка согласованности: исправляет только счетчики, расходящиеся с film_likes; возвращает их число
+    private static final String RECOUNT_LIKES_QUERY =
+            """
+            UPDATE films AS f
+            SET likes_count = (SELECT count(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id)
+            WHERE likes_count <> (SELECT count(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id)""";
+
+    // счетчики лайков вместе с годом выхода и жанрами всех фильмов одним чтением: по ним строятся рейтинги;
+    // у фильма с несколькими жанрами столько же строк, у фильма без жанров - одна с genre_id = NULL
+    private static final String FIND_POPULARITY_QUERY =
+            """
+            SELECT f.film_id, f.likes_count, EXTRACT(YEAR FROM f.release_date) AS release_year, fg.genre_id
+            FROM films AS f
+            LEFT JOIN film_genres AS fg ON fg.film_id = f.film_id""";
+
+    private static final String FIND_ALL_TEXTS_QUERY = "SELECT film_id, name, description FROM films";
+
+    // все лайки по порядку индекса film_likes_user_idx: лайки пользователя идут подряд
+    private static final String FIND_ALL_LIKES_QUERY =
+            "SELECT user_id, film_id FROM film_likes ORDER BY user_id, film_id";
+
+    @PostConstruct
+    public void init() {
+        filmInsert = new SimpleJdbcInsert(jdbc)
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "mpa_rating")
+                .usingGeneratedKeyColumns("film_id");
+        filmInsert.compile();
+
+        rebuildPopularity();
+        rebuildLikes();
+        rebuildSearch();
+    }
+
+    // строит рейтинги по сохраненным счетчикам likes_count одним чтением, без записи в БД
+    public void rebuildPopularity() {
+        final Map<Long, Integer> likesCounts = new HashMap<>();
+        final Map<Long, Integer> years = new HashMap<>();
+        final Map<Long, Set<Integer>> genreIds = new HashMap<>();
+        jdbc.query(FIND_POPULARITY_QUERY, (RowCallbackHandler) resultSet -> {
+            final long filmId = resultSet.getLong("film_id");
+            final int likesCount = resultSet.getInt("likes_count");
+            if (likesCount > 0) {
+                likesCounts.put(filmId, likesCount);
+            }
+            years.put(filmId, resultSet.getObject("release_year", Integer.class));
+            final Integer genreId = resultSet.getObject("genre_id", Integer.class);
+            if (genreId != null) {
+                genreIds.computeIfAbsent(filmId, id -> new HashSet<>()).add(genreId);
+            }
+        });
+        final Map<Long, FilmPopularityIndex.Attributes> attributes = new HashMap<>();
+        years.forEach((filmId, year) ->
+                attributes.put(filmId, new FilmPopularityIndex.Attributes(year, genreIds.get(filmId))));
+        popularityIndex.rebuild(likesCounts, attributes);
+        log.info("Рейтинг популярности построен по {} фильмам с лайками", likesCounts.size());
+    }
+
+    /**
+     * Проверка согласованности счетчиков likes_count с таблицей film_likes: расходящиеся счетчики
+     * исправляются, и рейтинг перестраивается. Полный просмотр обеих таблиц с блокировкой исправляемых строк,
+     * поэтому вызывается явно (POST /actuator/consistency), а не при каждом старте. Лайк, поставленный
+     * во время перестройки, может не попасть в рейтинг до следующей проверки.
+     *
+     * @return число фильмов, у которых счетчик лайков был исправлен
+     */
+    public int recountLikes() {
+        final int fixed = jdbc.update(RECOUNT_LIKES_QUERY);
+        if (fixed > 0) {
+            log.warn("Исправлены счетчики лайков у {} фильмов", fixed);
+            rebuildPopularity();
+        }
+        return fixed;
+    }
+
+    // перечитывает из БД все лайки и перестраивает по ним матрицу лайков для рекомендаций
+    public void rebuildLikes() {
+        // строки отсортированы по user_id и film_id: лайки каждого пользователя - отсортированный массив
+        final GroupedLongArrays likes = new GroupedLongArrays("user_id", "film_id");
+        jdbc.query(FIND_ALL_LIKES_QUERY, likes);
+        final Map<Long, long[]> usersLikes = likes.toMap();
+        likesIndex.rebuild(usersLikes);
+        log.info("Матрица лайков построена по {} пользователям с лайками", usersLikes.size());
+    }
+
+    // перечитывает из БД названия и описания всех фильмов и строит по ним поисковый индекс
+    public void rebuildSearch() {
+        final FilmSearchIndex.Builder builder = searchIndex.builder();
+        final int[] count = new int[1];
+        jdbc.query(FIND_ALL_TEXTS_QUERY, (RowCallbackHandler) resultSet -> {
+            builder.add(resultSet.getLong("film_id"), resultSet.getString("name"), resultSet.getString("description"));
+            count[0]++;
+        });
+        builder.build();
+        log.info("Поисковый индекс построен по {} фильмам", count[0]);
+    }
+
     @Override
     public Collection<Film> findAll() {
-        List<Film> films = jdbc.query(FIND_ALL_QUERY,  mapper);
-        for (Film f : films) {
-            List<Genre> genres = genreDbStorage.getFilmGenres(f.getId());
-            f.setGenres(genres);
-        }
-        return films;
+        return withGenres(jdbc.query(FIND_ALL_QUERY,  mapper));
+    }
+
+    @Override
+    public Collection<Film> findPage(long after, int limit) {
+        return withGenres(jdbc.query(FIND_PAGE_QUERY,  mapper, after, limit));
     }
 
+    // поток идет в одной транзакции только для чтения: жанры пачек читаются через то же соединение,
+    // что и открытый ResultSet фильмов, иначе каждый поток держал бы одно соединение пула и ждал второго
     @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Film> action) {
+        // фильмы отдаются пачками по STREAM_FETCH_SIZE: жанры каждой пачки догружаются одним запросом
+        final List<Film> chunk = new ArrayList<>(STREAM_FETCH_SIZE);
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_ALL_QUERY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            chunk.add(mapper.mapRow(resultSet, resultSet.getRow()));
+            if (chunk.size() == STREAM_FETCH_SIZE) {
+                withGenres(chunk).forEach(action);
+                chunk.clear();
+            }
+        });
+        withGenres(chunk).forEach(action);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.FILMS, key = "#id", unless = "#result == null")
     public Film findOneById(Long id) {
+        final Film film;
         try {
-            return jdbc.queryForObject(FIND_BY_ID_QUERY, mapper, id);
+            film = jdbc.queryForObject(FIND_BY_ID_QUERY, mapper, id);
         } catch (EmptyResultDataAccessException ignored) {
             return null;
         }
+        withGenres(List.of(film));
+        return film;
     }
 
     @Override
     public Film create(Film film) {
         // проверяем выполнение необходимых условий
-        FilmValidations.prepareCreation(film);
+        FilmValidations.prepareCreation(film, dictionaries);
 
         // добавляем фильм в таблицу с формирванием ID из последовательности films.film_id
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbc)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
-        long id = simpleJdbcInsert.executeAndReturnKey(toFilmMap(film)).longValue();
+        long id = filmInsert.executeAndReturnKey(toFilmMap(film)).longValue();
         film.setId(id);
 
         // добавляем жанры фильма в таблицу film_genres, если они есть
-        List<Genre> genres = film.getGenres();
-        if (genres == null) {
-            return film;
-        }
+        saveGenres(List.of(film));
+        popularityIndex.setAttributes(id, popularityAttributes(film));
+        searchIndex.index(id, film.getName(), film.getDescription());
+        return film;
+    }
 
-        for (Genre genre : genres) {
-            simpleJdbcInsert = new SimpleJdbcInsert(jdbc).withTableName("film_genres");
-            try {
-                simpleJdbcInsert.execute(toFilmGenresMap(id, genre.getId()));
-            }  catch (DuplicateKeyException ignored) {
-                log.warn("Комбинация film_id = {} и genre_id = {} уже есть в БД!", id, genre.getId());
-            }
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        // все фильмы пачки добавляются одним пакетом JDBC, сгенерированные ID возвращаются в порядке вставки
+        final KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement(INSERT_FILM_QUERY, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        final Film film = films.get(i);
+                        final Mpa mpa = film.getMpa();
+                        statement.setString(1, film.getName());
+                        statement.setString(2, film.getDescription());
+                        statement.setObject(3, film.getReleaseDate());
+                        statement.setInt(4, film.getDuration());
+                        statement.setObject(5, mpa == null ? null : mpa.getId(), Types.INTEGER);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+        final List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
         }
 
-        return film;
+        saveGenres(films);
+        films.forEach(film -> {
+            popularityIndex.setAttributes(film.getId(), popularityAttributes(film));
+            searchIndex.index(film.getId(), film.getName(), film.getDescription());
+        });
+        return films;
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.FILMS, key = "#film.id")
     public Film update(Film film) {
         final Long id = film.getId();
 
         // проверяем необходимые условия
-        Film oldFilm = findOneById(id);
-        FilmValidations.prepareUpdate(id, film, oldFilm);
+        FilmValidations.validateUpdate(id, film, dictionaries);
 
-        // если фильм найден и все условия соблюдены, обновляем его и возвращаем обновленный объект film
+        // обновляем фильм, если он есть, и возвращаем объект film с сохраненными значениями полей
         final Mpa mpa = film.getMpa();
-        final int rowsCount = jdbc.update(UPDATE_QUERY, film.getName(), film.getDescription(), film.getReleaseDate(),
-                film.getDuration(), (mpa == null ? null : mpa.getId()), id);
-        if (rowsCount == 0) {
-            log.error("Не найден фильм с ID = {} при update в БД", id);
-            throw new NotFoundException("Не удалось обновить фильм в БД.");
+        final List<Film> updated = jdbc.query(UPDATE_QUERY, mapper, film.getName(), film.getDescription(),
+                film.getReleaseDate(), film.getDuration(), (mpa == null ? null : mpa.getId()), id);
+        if (updated.isEmpty()) {
+            log.error("По указанному для обновления ID фильма {} нет сохраненной информации", id);
+            throw new NotFoundException("По указанному идентификтору фильм для обновления не найден");
         }
+        final Film saved = updated.get(0);
+        film.setName(saved.getName());
+        film.setDescription(saved.getDescription());
+        film.setReleaseDate(saved.getReleaseDate());
+        // жанры при обновлении не меняются, поэтому в рейтингах фильм может сменить только год
+        popularityIndex.setYear(id, saved.getReleaseDate() == null ? null : saved.getReleaseDate().getYear());
+        searchIndex.index(id, saved.getName(), saved.getDescription());
         return film;
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.FILMS, key = "#id")
     public Film delete(Long id) {
-        final Film oldFilm = findOneById(id);
-        FilmValidations.validateFilmNotNull(oldFilm, id);
-        return jdbc.update(DELETE_FILM_QUERY, id) > 0 ? oldFilm : null;
+        final List<Genre> genres = jdbc.queryForList(DELETE_FILM_GENRES_QUERY, Integer.class, id).stream()
+                .map(dictionaries::findGenre)
+                .toList();
+        final List<Film> deleted = jdbc.query(DELETE_FILM_QUERY, mapper, id);
+        FilmValidations.validateFilmExists(!deleted.isEmpty(), id);
+        final Film oldFilm = deleted.get(0);
+        oldFilm.setGenres(new ArrayList<>(genres));
+        popularityIndex.remove(id);
+        searchIndex.remove(id);
+        return oldFilm;
     }
 
     @Override
-    public Collection<Film> findPopular(Integer count) {
-        return jdbc.query(FIND_POPULAR,  mapper, count);
+    public Collection<Film> findPopular(Integer count, Integer genreId, Integer year) {
+        return findByIds(popularityIndex.findTop(count, genreId, year));
     }
 
     @Override
-    public void addLike(Long id, Long userId) {
-        final Film film = findOneById(id);
-        FilmValidations.validateFilmNotNull(film, id);
+    public Collection<Film> search(String query, Set<FilmSearchField> fields, Integer limit) {
+        return findByIds(searchIndex.search(query, fields, limit, popularityIndex::getLikesCount));
+    }
+
+    @Override
+    public Collection<Film> findRecommended(Long userId, Integer count) {
+        return findByIds(likesIndex.recommend(userId, count));
+    }
+
+    @Override
+    public Collection<Film> findCommon(Long userId, Long friendId) {
+        return findByIds(likesIndex.findCommon(userId, friendId));
+    }
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbc).withTableName("film_likes");
-        simpleJdbcInsert.execute(toFilmLikesdMap(id, userId));
+    @Override
+    @Transactional
+    public void addLike(Long id, Long userId) {
+        // ничего не вставлено: либо нет фильма или пользователя, либо лайк уже стоит
+        if (jdbc.update(INSERT_LIKE_IF_ABSENT_QUERY, id, userId) == 0) {
+            requireFilmAndUser(id, userId);
+            return;
+        }
+        jdbc.update(ADD_LIKES_COUNT_QUERY, 1, id);
+        popularityIndex.addLikes(id, 1);
+        likesIndex.addLike(id, userId);
     }
 
     @Override
+    @Transactional
     public void deleteLike(Long id, Long userId) {
-        final Film film = findOneById(id);
-        FilmValidations.validateFilmNotNull(film, id);
-        jdbc.update(DELETE_LIKE_QUERY, id, userId);
+        // ничего не удалено: либо нет фильма или пользователя, либо лайка и не было
+        if (jdbc.update(DELETE_LIKE_QUERY, id, userId) == 0) {
+            requireFilmAndUser(id, userId);
+            return;
+        }
+        jdbc.update(ADD_LIKES_COUNT_QUERY, -1, id);
+        popularityIndex.addLikes(id, -1);
+        likesIndex.removeLike(id, userId);
+    }
+
+    @Override
+    @Transactional
+    public void applyLikes(Collection<LikeChange> changes) {
+        final Map<Long, Integer> deltas = new HashMap<>();
+        applyLikesBatch(INSERT_LIKE_IF_ABSENT_QUERY,
+                changes.stream().filter(LikeChange::isLiked).toList(), 1, deltas);
+        applyLikesBatch(DELETE_LIKE_QUERY,
+                changes.stream().filter(change -> !change.isLiked()).toList(), -1, deltas);
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        final List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((filmId, delta) -> batchArgs.add(new Object[]{delta, filmId}));
+        jdbc.batchUpdate(ADD_LIKES_COUNT_QUERY, batchArgs);
+        deltas.forEach(popularityIndex::addLikes);
+    }
+
+    // выполняет одну пачку вставок или удалений лайков и накапливает изменения счетчиков по фильмам
+    private void applyLikesBatch(String query, List<LikeChange> changes, int delta, Map<Long, Integer> deltas) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        final int[][] counts = jdbc.batchUpdate(query, changes, changes.size(), (statement, change) -> {
+            statement.setLong(1, change.getFilmId());
+            statement.setLong(2, change.getUserId());
+        });
+        for (int i = 0; i < changes.size(); i++) {
+            if (counts[0][i] > 0) {
+                final LikeChange change = changes.get(i);
+                deltas.merge(change.getFilmId(), delta, Integer::sum);
+                if (delta > 0) {
+                    likesIndex.addLike(change.getFilmId(), change.getUserId());
+                } else {
+                    likesIndex.removeLike(change.getFilmId(), change.getUserId());
+                }
+            }
+        }
+    }
+
+    // существование фильма и пользователя проверяется отдельным запросом, только когда изменение лайка
+    // не затронуло ни одной строки; как и раньше, сначала проверяется пользователь
+    private void requireFilmAndUser(Long id, Long userId) {
+        jdbc.query(FILM_AND_USER_EXIST_QUERY, (RowCallbackHandler) resultSet -> {
+            UserValidations.validateUserExists(resultSet.getBoolean(2), userId);
+            FilmValidations.validateFilmExists(resultSet.getBoolean(1), id);
+        }, id, userId);
+    }
+
+    // жанры всех переданных фильмов пишутся одним пакетом JDBC; повторы жанров убираются заранее,
+    // а список жанров фильма заменяется экземплярами из справочника в порядке ID
+    private void saveGenres(Collection<Film> films) {
+        final List<Object[]> batchArgs = new ArrayList<>();
+        for (Film film : films) {
+            final List<Genre> genres = film.getGenres();
+            if (genres == null) {
+                continue;
+            }
+            final List<Genre> uniqueGenres = genres.stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .map(dictionaries::findGenre)
+                    .toList();
+            if (uniqueGenres.size() < genres.size()) {
+                log.warn("У фильма {} переданы повторяющиеся жанры: повторы не сохраняются", film.getName());
+            }
+            film.setGenres(new ArrayList<>(uniqueGenres));
+            uniqueGenres.forEach(genre -> batchArgs.add(new Object[]{film.getId(), genre.getId()}));
+        }
+        if (!batchArgs.isEmpty()) {
+            jdbc.batchUpdate(INSERT_FILM_GENRE_QUERY, batchArgs);
+        }
+    }
+
+    // фильмы возвращаются в порядке переданных ID
+    private List<Film> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : jdbc.query(FIND_BY_IDS_QUERY, mapper, (Object) ids.toArray(new Long[0]))) {
+            filmsById.put(film.getId(), film);
+        }
+        final List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return withGenres(films);
+    }
+
+    // жанры всех фильмов выборки загружаются одним запросом, независимо от количества фильмов
+    private List<Film> withGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        final List<Long> filmIds = films.stream().map(Film::getId).toList();
+        final Map<Long, List<Genre>> filmsGenres = genreDbStorage.getFilmsGenres(filmIds);
+        for (Film film : films) {
+            film.setGenres(filmsGenres.getOrDefault(film.getId(), new ArrayList<>()));
+        }
+        return films;
+    }
+
+    // жанры фильма к этому моменту уже без повторов и из справочника (см. saveGenres)
+    private static FilmPopularityIndex.Attributes popularityAttributes(Film film) {
+        final Set<Integer> genreIds = new HashSet<>();
+        if (film.getGenres() != null) {
+            film.getGenres().forEach(genre -> genreIds.add(genre.getId()));
+        }
+        return new FilmPopularityIndex.Attributes(
+                film.getReleaseDate() == null ? null : film.getReleaseDate().getYear(), genreIds);
     }
 
     private Map<String, Object> toFilmMap(Film film) {
@@ -174,18 +534,4 @@ public class FilmDbStorage implements FilmStorage {
         }
         return values;
     }
-
-    private Map<String, Object> toFilmLikesdMap(Long filmId, Long userId) {
-        Map<String, Object> values = new HashMap<>();
-        values.put("film_id", filmId);
-        values.put("user_id", userId);
-        return values;
-    }
-
-    private Map<String, Object> toFilmGenresMap(Long filmId, Integer genreId) {
-        Map<String, Object> values = new HashMap<>();
-        values.put("film_id", filmId);
-        values.put("genre_id", genreId);
-        return values;
-    }
 }
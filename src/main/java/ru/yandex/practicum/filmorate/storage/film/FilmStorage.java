@@ -1,23 +1,53 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Collection<Film> findAll();
 
+    Collection<Film> findPage(long after, int limit);
+
+    void streamAll(Consumer<Film> action);
+
     Film findOneById(Long id);
 
     Film create(Film film);
 
+    // фильмы уже подготовлены вызывающим (FilmValidations.prepareCreation): импорт проверяет их по одному,
+    // чтобы ошибка относилась к записи, а не ко всей пачке
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Film delete(Long id);
 
-    Collection<Film> findPopular(Integer count);
+    default Collection<Film> findPopular(Integer count) {
+        return findPopular(count, null, null);
+    }
+
+    // genreId и year - необязательные фильтры по жанру и году выхода, null - без фильтра
+    Collection<Film> findPopular(Integer count, Integer genreId, Integer year);
+
+    // до limit фильмов, в полях fields которых есть все слова запроса, по убыванию релевантности
+    Collection<Film> search(String query, Set<FilmSearchField> fields, Integer limit);
+
+    // фильмы, которые лайкнули пользователи с похожими лайками, а сам пользователь - нет
+    Collection<Film> findRecommended(Long userId, Integer count);
+
+    // фильмы, которые лайкнули оба пользователя, по убыванию популярности
+    Collection<Film> findCommon(Long userId, Long friendId);
 
     void addLike(Long id, Long userId);
 
     void deleteLike(Long id, Long userId);
+
+    // применяет пачку лайков и их отмен; лайки несуществующих фильмов или пользователей пропускаются
+    void applyLikes(Collection<LikeChange> changes);
 }
@@ -1,22 +1,69 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.utils.FilmValidations;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.utils.TopK;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Хранилище фильмов в памяти, безопасное для одновременных запросов.
+ * Фильмы лежат в ConcurrentHashMap, ID выдаются атомарным счетчиком за O(1),
+ * а лайки каждого фильма хранятся в потокобезопасном LongHashSet, который переходит к новой версии фильма
+ * при обновлении, поэтому параллельные лайки и обновления не теряют друг друга.
+ */
 @Component
+@RequiredArgsConstructor
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
+    // по убыванию количества лайков, при равенстве - по возрастанию ID, как и в FilmDbStorage
+    private static final Comparator<Film> POPULARITY_ORDER =
+            Comparator.comparingInt((Film film) -> film.getLikeUserIds().size()).reversed()
+                    .thenComparing(Film::getId);
+
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    // матрица лайков для рекомендаций и поисковый индекс, как у FilmDbStorage, но свои у каждого хранилища
+    private final FilmLikesIndex likesIndex = new FilmLikesIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final DictionaryRegistry dictionaries;
+    private final InMemoryUserStorage userStorage;
 
     @Override
     public Collection<Film> findAll() {
         return films.values();
     }
 
+    @Override
+    public Collection<Film> findPage(long after, int limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > after)
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> action) {
+        films.values().forEach(action);
+    }
+
     @Override
     public Film findOneById(Long id) {
         return films.get(id);
@@ -25,61 +72,131 @@ public class InMemoryFilmStorage implements FilmStorage {
     @Override
     public Film create(Film film) {
         // проверяем выполнение необходимых условий
-        FilmValidations.prepareCreation(film);
+        FilmValidations.prepareCreation(film, dictionaries);
+        return add(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        films.forEach(this::add);
+        return films;
+    }
 
+    private Film add(Film film) {
         // формируем ID
-        film.setId(getNextId());
+        film.setId(lastId.incrementAndGet());
+        film.setLikeUserIds(film.getLikeUserIds() == null ? new LongHashSet()
+                : new LongHashSet(film.getLikeUserIds()));
 
         // сохраняем новый фильм в памяти приложения и возвращаем его
         films.put(film.getId(), film);
+        film.getLikeUserIds().forEach(userId -> likesIndex.addLike(film.getId(), userId));
+        searchIndex.index(film.getId(), film.getName(), film.getDescription());
         return film;
     }
 
     @Override
     public Film update(Film film) {
         final Long id = film.getId();
-        // проверяем необходимые условия
-        FilmValidations.prepareUpdate(id, film, films.get(id));
+        // проверка и замена атомарны относительно удаления: удаленный фильм не вернется в хранилище
+        // и в поисковый индекс, а удаление, начатое позже, дождется замены и уберет новую версию
+        films.compute(id, (filmId, oldFilm) -> {
+            // проверяем необходимые условия
+            FilmValidations.prepareUpdate(id, film, oldFilm, dictionaries);
 
-        // если фильм найден и все условия соблюдены, обновляем его и возвращаем обновленный объект film
-        films.put(id, film);
+            // если фильм найден и все условия соблюдены, обновляем его;
+            // лайки не передаются в запросе на обновление, поэтому остаются прежними
+            film.setLikeUserIds(oldFilm.getLikeUserIds());
+            searchIndex.index(id, film.getName(), film.getDescription());
+            return film;
+        });
         return film;
     }
 
     @Override
     public Film delete(Long id) {
-        return films.remove(id);
+        final Film film = films.remove(id);
+        if (film != null) {
+            film.getLikeUserIds().forEach(userId -> likesIndex.removeLike(id, userId));
+            searchIndex.remove(id);
+        }
+        return film;
     }
 
+    // фильтр по жанру и году - просмотр всех фильмов, как и сам выбор лучших: хранилище в памяти служит для тестов
     @Override
-    public Collection<Film> findPopular(Integer count) {
+    public Collection<Film> findPopular(Integer count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return TopK.select(films.values(), count, POPULARITY_ORDER);
+        }
         return films.values().stream()
-                .sorted((f1, f2) -> {
-                    int comp = Integer.compare(f1.getLikeUserIds().size(), f2.getLikeUserIds().size());
-                    return -comp;  // descending
-                }).limit(count).toList();
+                .filter(film -> year == null
+                        || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year)
+                .filter(film -> genreId == null || film.getGenres() != null
+                        && film.getGenres().stream().anyMatch(genre -> genreId.equals(genre.getId())))
+                .collect(TopK.collector(count, POPULARITY_ORDER));
+    }
+
+    @Override
+    public Collection<Film> search(String query, Set<FilmSearchField> fields, Integer limit) {
+        return searchIndex.search(query, fields, limit, filmId -> {
+            final Film film = films.get(filmId);
+            return film == null ? 0 : film.getLikeUserIds().size();
+        }).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Collection<Film> findRecommended(Long userId, Integer count) {
+        return likesIndex.recommend(userId, count).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Collection<Film> findCommon(Long userId, Long friendId) {
+        return likesIndex.findCommon(userId, friendId).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     @Override
     public void addLike(Long id, Long userId) {
-        final Film film = films.get(id);
-        FilmValidations.validateFilmNotNull(film, id);
-        film.getLikeUserIds().add(userId);
+        userStorage.exists(userId);
+        FilmValidations.validateFilmExists(changeLike(id, userId, true), id);
     }
 
     @Override
     public void deleteLike(Long id, Long userId) {
-        final Film film = films.get(id);
-        FilmValidations.validateFilmNotNull(film, id);
-        film.getLikeUserIds().remove(userId);
+        userStorage.exists(userId);
+        FilmValidations.validateFilmExists(changeLike(id, userId, false), id);
+    }
+
+    @Override
+    public void applyLikes(Collection<LikeChange> changes) {
+        // лайки удаленных фильмов пропускаются
+        for (LikeChange change : changes) {
+            changeLike(change.getFilmId(), change.getUserId(), change.isLiked());
+        }
     }
 
-    private long getNextId() {
-        long currentMaxId = films.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    // лайк меняется, пока запись фильма заблокирована в ConcurrentHashMap: удаление фильма либо дождется
+    // изменения и снимет этот лайк из матрицы, либо завершится раньше, и лайк не попадет в матрицу вовсе
+    private boolean changeLike(Long id, Long userId, boolean liked) {
+        return films.computeIfPresent(id, (filmId, film) -> {
+            if (liked) {
+                film.getLikeUserIds().add(userId);
+                likesIndex.addLike(id, userId);
+            } else {
+                film.getLikeUserIds().remove(userId);
+                likesIndex.removeLike(id, userId);
+            }
+            return film;
+        }) != null;
     }
+
 }
@@ -0,0 +1,385 @@
+package ru.yandex.practicum.filmorate.storage.film.index;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.utils.SortedLongArrays;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Разреженная матрица лайков пользователь × фильм в памяти приложения.
+ * Хранится в двух ориентациях - фильмы, которые лайкнул пользователь, и пользователи, лайкнувшие фильм, -
+ * неизменяемыми отсортированными массивами long[]: изменение лайка заменяет по массиву в каждой ориентации,
+ * а чтение идет без блокировок. Между двумя заменами читатель может увидеть лайк только в одной ориентации,
+ * для рекомендаций это несущественно.
+ * <p>
+ * Рекомендации - коллаборативная фильтрация по пользователям: соседи - {@link #NEIGHBOURS} пользователей
+ * с наибольшим числом общих с целевым лайков, каждый фильм соседа, которого целевой пользователь еще не лайкнул,
+ * получает число общих лайков этого соседа. Счетчики - примитивные хеш-таблицы (общие лайки при большом числе
+ * просматриваемых лайков - массив по ID), выбор лучших - куча упакованных в long пар (оценка, ID),
+ * поэтому на кандидата не создается ни одного объекта. ID пользователей и фильмов положительны и меньше 2^32
+ * (integer в БД).
+ */
+@Component
+public class FilmLikesIndex {
+    // число соседей, по лайкам которых подбираются фильмы
+    public static final int NEIGHBOURS = 50;
+
+    // с такого числа просматриваемых лайков подсчет общих лайков делится между ядрами
+    private static final long PARALLEL_THRESHOLD = 200_000;
+
+    // начальная емкость счетчика: для большинства пользователей его не придется расширять
+    private static final int INITIAL_COUNTER_SIZE = 1 << 12;
+
+    // при стольких и меньше ID пользователей на один просматриваемый лайк общие лайки считаются в массиве по ID:
+    // обнулить и просмотреть массив дешевле, чем разрешать коллизии в хеш-таблице на каждом лайке
+    private static final int DENSE_IDS_PER_POSTING = 4;
+
+    private final Map<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> usersByFilm = new ConcurrentHashMap<>();
+    private final AtomicLong maxUserId = new AtomicLong();
+    private final int parallelism;
+
+    public FilmLikesIndex() {
+        this(ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    // parallelism - на сколько долей делится подсчет общих лайков, когда просматриваемых лайков много
+    public FilmLikesIndex(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // полностью перестраивает матрицу по лайкам пользователей, прочитанным из хранилища
+    public void rebuild(Map<Long, long[]> usersLikes) {
+        filmsByUser.clear();
+        usersByFilm.clear();
+        final Map<Long, int[]> likersCounts = new HashMap<>();
+        usersLikes.forEach((userId, filmIds) -> {
+            final long[] sorted = filmIds.clone();
+            Arrays.sort(sorted);
+            filmsByUser.put(userId, sorted);
+            for (long filmId : sorted) {
+                likersCounts.computeIfAbsent(filmId, id -> new int[1])[0]++;
+            }
+        });
+        likersCounts.forEach((filmId, count) -> {
+            usersByFilm.put(filmId, new long[count[0]]);
+            count[0] = 0;
+        });
+        // пользователи обходятся по возрастанию ID, поэтому массивы лайкнувших заполняются сразу отсортированными
+        final long[] userIds = filmsByUser.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        maxUserId.set(userIds.length == 0 ? 0 : userIds[userIds.length - 1]);
+        for (long userId : userIds) {
+            for (long filmId : filmsByUser.get(userId)) {
+                usersByFilm.get(filmId)[likersCounts.get(filmId)[0]++] = userId;
+            }
+        }
+    }
+
+    public void addLike(long filmId, long userId) {
+        maxUserId.accumulateAndGet(userId, Math::max);
+        filmsByUser.compute(userId, (id, filmIds) ->
+                SortedLongArrays.insert(filmIds == null ? SortedLongArrays.EMPTY : filmIds, filmId));
+        usersByFilm.compute(filmId, (id, userIds) ->
+                SortedLongArrays.insert(userIds == null ? SortedLongArrays.EMPTY : userIds, userId));
+    }
+
+    public void removeLike(long filmId, long userId) {
+        filmsByUser.computeIfPresent(userId, (id, filmIds) -> emptyToNull(SortedLongArrays.delete(filmIds, filmId)));
+        usersByFilm.computeIfPresent(filmId, (id, userIds) -> emptyToNull(SortedLongArrays.delete(userIds, userId)));
+    }
+
+    public long[] getLikedFilms(long userId) {
+        return filmsByUser.getOrDefault(userId, SortedLongArrays.EMPTY);
+    }
+
+    public long[] getLikers(long filmId) {
+        return usersByFilm.getOrDefault(filmId, SortedLongArrays.EMPTY);
+    }
+
+    /**
+     * ID фильмов, которые лайкнули оба пользователя, по убыванию числа лайков, при равенстве - по возрастанию ID.
+     * Лайки пользователей пересекаются как отсортированные массивы: при сильно различающемся числе лайков
+     * фильмы пользователя с меньшим числом ищутся в лайках другого галопирующим поиском.
+     */
+    public List<Long> findCommon(long userId, long otherId) {
+        final long[] common = SortedLongArrays.intersect(getLikedFilms(userId), getLikedFilms(otherId));
+        final long[] ranked = new long[common.length];
+        for (int i = 0; i < common.length; i++) {
+            ranked[i] = pack(getLikers(common[i]).length, common[i]);
+        }
+        Arrays.sort(ranked);
+        final List<Long> result = new ArrayList<>(ranked.length);
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            result.add(idOf(ranked[i]));
+        }
+        return result;
+    }
+
+    /**
+     * ID до count рекомендованных пользователю фильмов по убыванию оценки, при равенстве - по возрастанию ID.
+     * Пользователь без лайков или без соседей получает пустой список.
+     */
+    public List<Long> recommend(long userId, int count) {
+        final long[] liked = getLikedFilms(userId);
+        if (liked.length == 0 || count <= 0) {
+            return new ArrayList<>();
+        }
+        final long[][] likers = new long[liked.length][];
+        long postings = 0;
+        for (int i = 0; i < liked.length; i++) {
+            likers[i] = getLikers(liked[i]);
+            postings += likers[i].length;
+        }
+
+        // каждое ядро считает общие лайки только своего диапазона ID пользователей, который в отсортированных
+        // массивах лайкнувших находится двоичным поиском, поэтому счетчики не нужно сливать -
+        // объединяются лишь лучшие соседи каждого диапазона
+        final int partitions = postings >= PARALLEL_THRESHOLD ? parallelism : 1;
+        final long width = maxUserId.get() / partitions + 1;
+        final boolean dense = width <= postings / partitions * DENSE_IDS_PER_POSTING;
+        final int expectedSize = (int) Math.min(postings / partitions, INITIAL_COUNTER_SIZE);
+        final IntStream parts = partitions > 1 ? IntStream.range(0, partitions).parallel() : IntStream.of(0);
+        final long[] neighbours = parts
+                .mapToObj(part -> dense
+                        ? findNeighboursDense(userId, likers, part * width, (int) width)
+                        : findNeighbours(userId, likers, part * width, part * width + width, expectedSize))
+                .reduce(TopLongs::merge)
+                .orElseThrow()
+                .toDescendingArray();
+
+        final LongIntCounter scores = new LongIntCounter(INITIAL_COUNTER_SIZE);
+        for (long neighbour : neighbours) {
+            final int overlap = valueOf(neighbour);
+            for (long filmId : getLikedFilms(idOf(neighbour))) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.add(filmId, overlap);
+                }
+            }
+        }
+        final TopLongs best = new TopLongs(count);
+        scores.forEach((filmId, score) -> best.offer(pack(score, filmId)));
+        final long[] films = best.toDescendingArray();
+        final List<Long> result = new ArrayList<>(films.length);
+        for (long film : films) {
+            result.add(idOf(film));
+        }
+        return result;
+    }
+
+    // соседи с ID из [from, to): общие лайки считаются в хеш-таблице
+    private TopLongs findNeighbours(long userId, long[][] likers, long from, long to, int expectedSize) {
+        final LongIntCounter overlaps = new LongIntCounter(expectedSize);
+        for (long[] filmLikers : likers) {
+            for (int i = lowerBound(filmLikers, from), end = lowerBound(filmLikers, to); i < end; i++) {
+                overlaps.add(filmLikers[i], 1);
+            }
+        }
+        final TopLongs neighbours = new TopLongs(NEIGHBOURS);
+        overlaps.forEach((otherId, overlap) -> {
+            if (otherId != userId) {
+                neighbours.offer(pack(overlap, otherId));
+            }
+        });
+        return neighbours;
+    }
+
+    // соседи с ID из [from, from + width): общие лайки считаются в массиве, индекс в котором - смещение ID от from
+    private TopLongs findNeighboursDense(long userId, long[][] likers, long from, int width) {
+        final int[] overlaps = new int[width];
+        for (long[] filmLikers : likers) {
+            for (int i = lowerBound(filmLikers, from), end = lowerBound(filmLikers, from + width); i < end; i++) {
+                overlaps[(int) (filmLikers[i] - from)]++;
+            }
+        }
+        if (userId >= from && userId < from + width) {
+            overlaps[(int) (userId - from)] = 0;
+        }
+        final TopLongs neighbours = new TopLongs(NEIGHBOURS);
+        for (int i = 0; i < width; i++) {
+            if (overlaps[i] > 0) {
+                neighbours.offer(pack(overlaps[i], from + i));
+            }
+        }
+        return neighbours;
+    }
+
+    // индекс первого элемента отсортированного массива, не меньшего value
+    private static int lowerBound(long[] array, long value) {
+        if (array.length == 0 || array[0] >= value) {
+            return 0;
+        }
+        if (array[array.length - 1] < value) {
+            return array.length;
+        }
+        final int position = Arrays.binarySearch(array, value);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private static long[] emptyToNull(long[] array) {
+        return array.length == 0 ? null : array;
+    }
+
+    // пара (значение, ID) в одном long: большее значение - больший long, при равенстве - меньший ID
+    private static long pack(int value, long id) {
+        return ((long) value << 32) | (0xFFFFFFFFL - id);
+    }
+
+    private static int valueOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static long idOf(long packed) {
+        return 0xFFFFFFFFL - (packed & 0xFFFFFFFFL);
+    }
+
+    /**
+     * K наибольших long: на вершине кучи - наименьший из отобранных, его и вытесняет больший.
+     */
+    private static final class TopLongs {
+        private final long[] heap;
+        private int size;
+
+        private TopLongs(int capacity) {
+            heap = new long[capacity];
+        }
+
+        private void offer(long value) {
+            if (size < heap.length) {
+                heap[size] = value;
+                siftUp(size++);
+            } else if (value > heap[0]) {
+                heap[0] = value;
+                siftDown(0);
+            }
+        }
+
+        private TopLongs merge(TopLongs other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+            return this;
+        }
+
+        private long[] toDescendingArray() {
+            final long[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                final long swap = result[i];
+                result[i] = result[j];
+                result[j] = swap;
+            }
+            return result;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (heap[parent] <= heap[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                final int left = 2 * index + 1;
+                if (left >= size) {
+                    return;
+                }
+                final int right = left + 1;
+                final int smallest = right < size && heap[right] < heap[left] ? right : left;
+                if (heap[index] <= heap[smallest]) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            final long value = heap[i];
+            heap[i] = heap[j];
+            heap[j] = value;
+        }
+    }
+
+    /**
+     * Счетчики по ключам long с открытой адресацией, как в LongHashSet; ключ 0 не используется (ID положительны).
+     * Живет в пределах одного запроса и одного потока, поэтому не синхронизирован.
+     */
+    private static final class LongIntCounter {
+        private static final float MAX_LOAD = 0.5f;
+
+        private long[] keys;
+        private int[] values;
+        private int bits;
+        private int size;
+
+        private LongIntCounter(int expectedSize) {
+            allocate(Math.max(16, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1));
+        }
+
+        private void add(long key, int delta) {
+            final int mask = keys.length - 1;
+            int index = indexOf(key);
+            while (keys[index] != 0) {
+                if (keys[index] == key) {
+                    values[index] += delta;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = delta;
+            if (++size > keys.length * MAX_LOAD) {
+                rehash();
+            }
+        }
+
+        private void forEach(Entry action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    action.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        private int indexOf(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+        }
+
+        private void rehash() {
+            final long[] oldKeys = keys;
+            final int[] oldValues = values;
+            allocate(oldKeys.length * 2);
+            final int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int index = indexOf(oldKeys[i]);
+                    while (keys[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            bits = Integer.numberOfTrailingZeros(capacity);
+        }
+
+        @FunctionalInterface
+        private interface Entry {
+            void accept(long key, int value);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.film.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * Рейтинг популярности фильмов в памяти приложения.
+ * Фильмы упорядочены по убыванию количества лайков (при равенстве - по возрастанию ID),
+ * поэтому первые K фильмов рейтинга выбираются за O(K) без обращения к БД.
+ * Фильмы без лайков в рейтинг не входят.
+ * <p>
+ * Кроме общего рейтинга ведутся рейтинги по каждому жанру, году выхода и паре (жанр, год):
+ * фильм входит во все рейтинги, к которым относится, и при изменении лайков переставляется в каждом из них,
+ * поэтому топ фильмов с фильтром выбирается так же за O(K).
+ */
+@Component
+public class FilmPopularityIndex {
+    private final Map<Long, Integer> likesCounts = new ConcurrentHashMap<>();
+    private final Map<Long, Attributes> filmsAttributes = new ConcurrentHashMap<>();
+    private final Map<Partition, NavigableSet<Rank>> rankings = new ConcurrentHashMap<>();
+
+    /**
+     * Год выхода (null, если дата выхода не указана) и ID жанров фильма, по которым он попадает в рейтинги.
+     */
+    public record Attributes(Integer year, Set<Integer> genreIds) {
+        public static final Attributes NONE = new Attributes(null, Set.of());
+
+        public Attributes {
+            genreIds = genreIds == null ? Set.of() : Set.copyOf(genreIds);
+        }
+
+        private List<Partition> partitions() {
+            final List<Partition> partitions = new ArrayList<>((genreIds.size() + 1) * 2);
+            partitions.add(Partition.ALL);
+            if (year != null) {
+                partitions.add(new Partition(null, year));
+            }
+            for (Integer genreId : genreIds) {
+                partitions.add(new Partition(genreId, null));
+                if (year != null) {
+                    partitions.add(new Partition(genreId, year));
+                }
+            }
+            return partitions;
+        }
+    }
+
+    // полностью перестраивает рейтинги по счетчикам лайков и атрибутам фильмов, прочитанным из хранилища
+    public void rebuild(Map<Long, Integer> filmsLikesCounts, Map<Long, Attributes> attributes) {
+        likesCounts.clear();
+        filmsAttributes.clear();
+        rankings.clear();
+        filmsAttributes.putAll(attributes);
+        filmsLikesCounts.forEach((filmId, likesCount) -> addLikes(filmId, likesCount));
+    }
+
+    public void addLikes(long filmId, int delta) {
+        // compute выполняется атомарно для ключа, поэтому позиция фильма в рейтингах меняется согласованно со счетчиком
+        likesCounts.compute(filmId, (id, oldCount) -> {
+            final int oldLikes = oldCount == null ? 0 : oldCount;
+            final int newLikes = Math.max(0, oldLikes + delta);
+            final List<Partition> partitions = attributesOf(id).partitions();
+            if (oldLikes > 0) {
+                removeRank(partitions, new Rank(oldLikes, id));
+            }
+            if (newLikes == 0) {
+                return null;
+            }
+            addRank(partitions, new Rank(newLikes, id));
+            return newLikes;
+        });
+    }
+
+    public void setAttributes(long filmId, Attributes attributes) {
+        updateAttributes(filmId, oldAttributes -> attributes);
+    }
+
+    // новый год выхода при прежних жанрах; null - год не изменился
+    public void setYear(long filmId, Integer year) {
+        if (year != null) {
+            updateAttributes(filmId, oldAttributes -> new Attributes(year, oldAttributes.genreIds()));
+        }
+    }
+
+    public void remove(long filmId) {
+        likesCounts.compute(filmId, (id, likes) -> {
+            if (likes != null) {
+                removeRank(attributesOf(id).partitions(), new Rank(likes, id));
+            }
+            filmsAttributes.remove(id);
+            return null;
+        });
+    }
+
+    public int getLikesCount(long filmId) {
+        return likesCounts.getOrDefault(filmId, 0);
+    }
+
+    public List<Long> findTop(int count) {
+        return findTop(count, null, null);
+    }
+
+    // genreId и year - необязательные фильтры: null означает любой жанр или год
+    public List<Long> findTop(int count, Integer genreId, Integer year) {
+        final NavigableSet<Rank> ranking = rankings.get(new Partition(genreId, year));
+        if (ranking == null) {
+            return new ArrayList<>();
+        }
+        final List<Long> filmIds = new ArrayList<>(Math.min(count, likesCounts.size()));
+        final Iterator<Rank> iterator = ranking.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            filmIds.add(iterator.next().filmId());
+        }
+        return filmIds;
+    }
+
+    // атрибуты меняются под той же блокировкой ключа, что и счетчик, поэтому фильм переходит между рейтингами
+    // согласованно с одновременными лайками
+    private void updateAttributes(long filmId, UnaryOperator<Attributes> update) {
+        likesCounts.compute(filmId, (id, likes) -> {
+            final Attributes oldAttributes = attributesOf(id);
+            final Attributes newAttributes = update.apply(oldAttributes);
+            if (likes != null) {
+                final Rank rank = new Rank(likes, id);
+                removeRank(oldAttributes.partitions(), rank);
+                addRank(newAttributes.partitions(), rank);
+            }
+            filmsAttributes.put(id, newAttributes);
+            return likes;
+        });
+    }
+
+    private Attributes attributesOf(long filmId) {
+        return filmsAttributes.getOrDefault(filmId, Attributes.NONE);
+    }
+
+    private void addRank(List<Partition> partitions, Rank rank) {
+        for (Partition partition : partitions) {
+            rankings.computeIfAbsent(partition, key -> new ConcurrentSkipListSet<>()).add(rank);
+        }
+    }
+
+    private void removeRank(List<Partition> partitions, Rank rank) {
+        for (Partition partition : partitions) {
+            final NavigableSet<Rank> ranking = rankings.get(partition);
+            if (ranking != null) {
+                ranking.remove(rank);
+            }
+        }
+    }
+
+    // рейтинг фильмов жанра и года выхода; null - без ограничения по этому признаку
+    private record Partition(Integer genreId, Integer year) {
+        private static final Partition ALL = new Partition(null, null);
+    }
+
+    private record Rank(int likesCount, long filmId) implements Comparable<Rank> {
+        @Override
+        public int compareTo(Rank other) {
+            final int comp = Integer.compare(other.likesCount, likesCount);  // descending
+            return comp != 0 ? comp : Long.compare(filmId, other.filmId);
+        }
+    }
+}
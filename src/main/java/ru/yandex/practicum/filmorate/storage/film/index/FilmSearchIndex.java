@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.storage.film.index;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.utils.SortedLongArrays;
+import ru.yandex.practicum.filmorate.storage.utils.TopK;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Обратный индекс для полнотекстового поиска фильмов по названию и описанию в памяти приложения.
+ * Для каждого поля терм (слово после нормализации) указывает на отсортированный массив long[] ID фильмов,
+ * в которых он встречается: 8 байт на вхождение вместо объекта на каждое, как в Set&lt;Long&gt;.
+ * Массивы заменяются целиком, как в FriendGraphIndex, поэтому поиск идет без блокировок.
+ * <p>
+ * Слова приводятся к нижнему регистру, ё заменяется на е, у русских и английских слов отбрасываются
+ * частые окончания, чтобы "матрица" и "матрицы" давали один терм. Слово запроса совпадает с термами,
+ * которые с него начинаются; точное совпадение весит больше совпадения по префиксу, а совпадение в названии -
+ * больше совпадения в описании. Фильм должен содержать все слова запроса; к текстовой оценке добавляется
+ * логарифм числа лайков, чтобы при близкой оценке выше оказывались популярные фильмы.
+ */
+@Component
+public class FilmSearchIndex {
+    // более короткие слова запроса ищутся только точным совпадением, иначе префикс охватывает почти весь словарь
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // после отбрасывания окончания от слова должно остаться не меньше
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private static final int EXACT_WEIGHT = 2;
+    private static final int PREFIX_WEIGHT = 1;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double LIKES_WEIGHT = 0.5;
+
+    // окончания по убыванию длины: отбрасывается самое длинное подходящее
+    private static final List<String> RUSSIAN_ENDINGS = List.of(
+            "иями", "ями", "ами", "его", "ого", "ему", "ому", "ыми", "ими", "иях",
+            "ах", "ях", "ов", "ев", "ей", "ой", "ий", "ый", "ая", "яя", "ое", "ее", "ую", "юю", "ом", "ем",
+            "ам", "ям", "им", "ым", "их", "ых", "ью",
+            "а", "я", "ы", "и", "о", "е", "у", "ю", "ь", "й");
+
+    private static final List<String> ENGLISH_ENDINGS = List.of("ing", "ies", "es", "ed", "s");
+
+    // служебные слова есть почти в каждом описании: их массивы ID были бы огромными, а оценку они не меняют
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "не", "на", "с", "со", "что", "как", "а", "но", "к", "по", "из", "за", "от", "до",
+            "о", "об", "у", "же", "для", "это",
+            "the", "a", "an", "and", "or", "of", "in", "on", "to", "is", "for", "with", "at", "by");
+
+    private final Map<FilmSearchField, NavigableMap<String, long[]>> postings = new EnumMap<>(Map.of(
+            FilmSearchField.TITLE, new ConcurrentSkipListMap<>(),
+            FilmSearchField.DESCRIPTION, new ConcurrentSkipListMap<>()));
+
+    // термы каждого проиндексированного фильма по полям: по ним фильм убирается из индекса при изменении
+    private final Map<Long, String[][]> filmsTerms = new ConcurrentHashMap<>();
+
+    // полностью перестраивает индекс; фильмы передаются построителю по одному, без загрузки всех текстов сразу
+    public Builder builder() {
+        return new Builder();
+    }
+
+    public void index(long filmId, String name, String description) {
+        final String[][] terms = termsOf(name, description);
+        // compute по ID фильма упорядочивает одновременные изменения одного фильма
+        filmsTerms.compute(filmId, (id, oldTerms) -> {
+            if (oldTerms != null) {
+                removePostings(id, oldTerms);
+            }
+            final FilmSearchField[] fields = FilmSearchField.values();
+            for (int i = 0; i < fields.length; i++) {
+                final NavigableMap<String, long[]> fieldPostings = postings.get(fields[i]);
+                for (int j = 0; j < terms[i].length; j++) {
+                    fieldPostings.compute(terms[i][j], (term, filmIds) ->
+                            SortedLongArrays.insert(filmIds == null ? SortedLongArrays.EMPTY : filmIds, id));
+                    // у всех фильмов один экземпляр строки терма - тот, что служит ключом индекса
+                    final String key = fieldPostings.ceilingKey(terms[i][j]);
+                    if (terms[i][j].equals(key)) {
+                        terms[i][j] = key;
+                    }
+                }
+            }
+            return terms;
+        });
+    }
+
+    public void remove(long filmId) {
+        filmsTerms.computeIfPresent(filmId, (id, oldTerms) -> {
+            removePostings(id, oldTerms);
+            return null;
+        });
+    }
+
+    /**
+     * До limit ID фильмов, содержащих все слова запроса в одном из полей fields, по убыванию релевантности,
+     * при равенстве - по возрастанию ID. Запрос без слов (например, из одних служебных) ничего не находит.
+     */
+    public List<Long> search(String query, Set<FilmSearchField> fields, int limit, LongToIntFunction likesCount) {
+        final List<String> words = tokenize(query);
+        if (words.isEmpty() || fields.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Integer> scores = null;
+        for (String word : words) {
+            final Map<Long, Integer> wordScores = score(word, fields);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                final Map<Long, Integer> previous = scores;
+                wordScores.keySet().retainAll(previous.keySet());
+                wordScores.replaceAll((filmId, score) -> score + previous.get(filmId));
+                scores = wordScores;
+            }
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        final List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((filmId, score) ->
+                hits.add(new Hit(filmId, score + LIKES_WEIGHT * Math.log1p(likesCount.applyAsInt(filmId)))));
+        return TopK.select(hits, limit, Hit.ORDER).stream()
+                .map(Hit::filmId)
+                .toList();
+    }
+
+    // различные термы текста в порядке появления
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        final Set<String> terms = new LinkedHashSet<>();
+        final String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            final boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                final String word = normalized.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    terms.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // термы фильма по полям в порядке FilmSearchField
+    private static String[][] termsOf(String name, String description) {
+        return new String[][]{tokenize(name).toArray(new String[0]), tokenize(description).toArray(new String[0])};
+    }
+
+    private static String stem(String word) {
+        final List<String> endings = Character.UnicodeBlock.of(word.charAt(0)) == Character.UnicodeBlock.CYRILLIC
+                ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            if (word.length() - ending.length() >= MIN_STEM_LENGTH && word.endsWith(ending)) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    // оценка слова запроса для каждого фильма: по лучшему совпадению в каждом поле, сумма по полям
+    private Map<Long, Integer> score(String word, Set<FilmSearchField> fields) {
+        final Map<Long, Integer> scores = new HashMap<>();
+        for (FilmSearchField field : fields) {
+            final int fieldWeight = field == FilmSearchField.TITLE ? TITLE_WEIGHT : DESCRIPTION_WEIGHT;
+            final NavigableMap<String, long[]> terms = postings.get(field);
+            final Map<Long, Integer> fieldScores = new HashMap<>();
+            final Map<String, long[]> matches = word.length() < MIN_PREFIX_LENGTH
+                    ? exactMatch(terms, word)
+                    : terms.subMap(word, true, word + Character.MAX_VALUE, false);
+            matches.forEach((term, filmIds) -> {
+                final int score = fieldWeight * (term.equals(word) ? EXACT_WEIGHT : PREFIX_WEIGHT);
+                for (long filmId : filmIds) {
+                    fieldScores.merge(filmId, score, Math::max);
+                }
+            });
+            fieldScores.forEach((filmId, score) -> scores.merge(filmId, score, Integer::sum));
+        }
+        return scores;
+    }
+
+    private static Map<String, long[]> exactMatch(NavigableMap<String, long[]> terms, String word) {
+        final long[] filmIds = terms.get(word);
+        return filmIds == null ? Map.of() : Map.of(word, filmIds);
+    }
+
+    private void removePostings(long filmId, String[][] terms) {
+        final FilmSearchField[] fields = FilmSearchField.values();
+        for (int i = 0; i < fields.length; i++) {
+            for (String term : terms[i]) {
+                postings.get(fields[i]).computeIfPresent(term, (key, filmIds) -> {
+                    final long[] rest = SortedLongArrays.delete(filmIds, filmId);
+                    return rest.length == 0 ? null : rest;
+                });
+            }
+        }
+    }
+
+    /**
+     * Построитель индекса: массивы ID растут с запасом и сортируются один раз, а не копируются на каждый фильм.
+     * Содержимое индекса заменяется в build().
+     */
+    public final class Builder {
+        private final List<Map<String, Postings>> newPostings = List.of(new HashMap<>(), new HashMap<>());
+        private final Map<Long, String[][]> newFilmsTerms = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public void add(long filmId, String name, String description) {
+            final String[][] terms = termsOf(name, description);
+            for (int i = 0; i < terms.length; i++) {
+                for (int j = 0; j < terms[i].length; j++) {
+                    final Postings termPostings = newPostings.get(i).computeIfAbsent(terms[i][j], Postings::new);
+                    termPostings.add(filmId);
+                    // у всех фильмов один экземпляр строки терма
+                    terms[i][j] = termPostings.term;
+                }
+            }
+            newFilmsTerms.put(filmId, terms);
+        }
+
+        public void build() {
+            filmsTerms.clear();
+            final FilmSearchField[] fields = FilmSearchField.values();
+            for (int i = 0; i < fields.length; i++) {
+                final NavigableMap<String, long[]> fieldPostings = postings.get(fields[i]);
+                fieldPostings.clear();
+                newPostings.get(i).forEach((term, termPostings) -> fieldPostings.put(term, termPostings.toArray()));
+            }
+            filmsTerms.putAll(newFilmsTerms);
+        }
+    }
+
+    private static final class Postings {
+        private final String term;
+        private long[] filmIds = new long[4];
+        private int size;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        private void add(long filmId) {
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+            }
+            filmIds[size++] = filmId;
+        }
+
+        private long[] toArray() {
+            final long[] sorted = Arrays.copyOf(filmIds, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    private record Hit(long filmId, double relevance) {
+        private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::relevance).reversed()
+                .thenComparingLong(Hit::filmId);
+    }
+}
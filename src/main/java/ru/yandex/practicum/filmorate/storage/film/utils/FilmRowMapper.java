@@ -4,26 +4,22 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.List;
-
 
+// жанры здесь не заполняются: FilmDbStorage догружает их одним запросом для всей выборки фильмов
 @Component
 @RequiredArgsConstructor
 public class FilmRowMapper implements RowMapper<Film> {
-    private final GenreStorage genreStorage;
+    private final DictionaryRegistry dictionaries;
 
     @Override
     public Film mapRow(ResultSet resultSet, int rowNum) throws SQLException {
         final Film film = new Film();
-        final Long filmId = resultSet.getLong("film_id");
-        film.setId(filmId);
+        film.setId(resultSet.getLong("film_id"));
         film.setName(resultSet.getString("name"));
         film.setDescription(resultSet.getString("description"));
 
@@ -34,13 +30,9 @@ public class FilmRowMapper implements RowMapper<Film> {
 
         final int mpaId = resultSet.getInt("mpa_id");
         if (mpaId > 0) {
-            final String mpaName = resultSet.getString("mpa_name");
-            film.setMpa(new Mpa(mpaId, mpaName));
+            film.setMpa(dictionaries.findMpa(mpaId));
         }
 
-        List<Genre> genres = genreStorage.getFilmGenres(filmId);
-        film.setGenres(genres);
-
         return film;
     }
 }
@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -13,67 +14,87 @@ import java.time.format.DateTimeFormatter;
 public class FilmValidations {
     private static final LocalDate FILM_BIRTHDAY = LocalDate.of(1895, 12, 28);
 
-    public static void prepareCreation(final Film film) {
+    public static void prepareCreation(final Film film, final DictionaryRegistry dictionaries) {
         final LocalDate releaseDate = film.getReleaseDate();
         if (releaseDate != null && releaseDate.isBefore(FILM_BIRTHDAY)) {
             log.error("При добавлении получена слишком ранняя дата фильма {} < 28.12.1895",
                     releaseDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
             throw new ValidationException("Дата выхода фильма не может быть раньше 28.12.1895");
         }
-        validateMpa(film.getMpa());
+        validateMpa(film.getMpa(), dictionaries);
     }
 
-    public static void prepareUpdate(final Long id, final Film film, final Film oldFilm) {
+    // проверки обновления, не требующие прежней версии фильма; пустые name и description и не указанная
+    // releaseDate заменяются на null - такие поля при обновлении не изменяются
+    public static void validateUpdate(final Long id, final Film film, final DictionaryRegistry dictionaries) {
         if (id == null) {
             log.error("Получен пустой идентификатор фильма при обновлении");
             throw new ValidationException("Идентификтор фильма не может быть пустым для команды обновления");
         }
 
-        if (oldFilm == null) {
-            log.error("По указанному для обновления ID фильма {} нет сохраненной информации", id);
-            throw new NotFoundException("По указанному идентификтору фильм для обновления не найден");
-        }
-        if (!oldFilm.getId().equals(id)) {
-            log.error("По указанному ID фильма для обновления {} найден фильм с другим ID={}", id, oldFilm.getId());
-            throw new ValidationException("По указанному идентификтору найден фильм с другим ид.");
-        }
-
         if (film.getName() == null || film.getName().trim().isBlank()) {
             log.warn("Не получено или указано пустое имя фильма при обновлении: name не изменяется");
-            film.setName(oldFilm.getName());
+            film.setName(null);
         }
 
         final String description = film.getDescription();
         if (description == null || description.trim().isBlank()) {
             log.warn("Не получено или указано пустое описание фильма при обновлении: description не изменяется");
-            film.setDescription(oldFilm.getDescription());
+            film.setDescription(null);
         }
 
         final LocalDate releaseDate = film.getReleaseDate();
         if (releaseDate == null) {
             log.warn("Не получена или указана пустая дата выхода фильма при обновлении: releaseDate не изменяется");
-            film.setReleaseDate(oldFilm.getReleaseDate());
         } else if (releaseDate.isBefore(FILM_BIRTHDAY)) {
             log.error("При обновлении получена слишком ранняя дата фильма {} < 28.12.1895", releaseDate);
             throw new ValidationException("Дата выхода фильма не может быть раньше 28.12.1895");
         }
 
-        validateMpa(film.getMpa());
+        validateMpa(film.getMpa(), dictionaries);
+    }
+
+    public static void prepareUpdate(final Long id, final Film film, final Film oldFilm,
+                                     final DictionaryRegistry dictionaries) {
+        validateUpdate(id, film, dictionaries);
+
+        if (oldFilm == null) {
+            log.error("По указанному для обновления ID фильма {} нет сохраненной информации", id);
+            throw new NotFoundException("По указанному идентификтору фильм для обновления не найден");
+        }
+        if (!oldFilm.getId().equals(id)) {
+            log.error("По указанному ID фильма для обновления {} найден фильм с другим ID={}", id, oldFilm.getId());
+            throw new ValidationException("По указанному идентификтору найден фильм с другим ид.");
+        }
+
+        if (film.getName() == null) {
+            film.setName(oldFilm.getName());
+        }
+        if (film.getDescription() == null) {
+            film.setDescription(oldFilm.getDescription());
+        }
+        if (film.getReleaseDate() == null) {
+            film.setReleaseDate(oldFilm.getReleaseDate());
+        }
     }
 
     public static void validateFilmNotNull(Film film, Long id) {
-        if (film == null) {
+        validateFilmExists(film != null, id);
+    }
+
+    public static void validateFilmExists(boolean exists, Long id) {
+        if (!exists) {
             log.error("По указанному ID фильма {} нет сохраненной информации", id);
             throw new NotFoundException("По указанному идентификтору фильм не найден");
         }
     }
 
-    private static void validateMpa(final Mpa mpa) {
+    private static void validateMpa(final Mpa mpa, final DictionaryRegistry dictionaries) {
         if (mpa == null) {
             return;
         }
-        final int mpaId = mpa.getId();
-        if (!(mpaId >= 1 && mpaId <= 5)) {
+        final Integer mpaId = mpa.getId();
+        if (!dictionaries.mpaExists(mpaId)) {
             log.error("При добавлении/обновлении фильма получено некорректное значение MPA-рейинга = {}", mpaId);
             throw new ValidationException("Недопустимое значение MPA-рейтинга");
         }
@@ -2,62 +2,72 @@ package ru.yandex.practicum.filmorate.storage.genre;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbc;
-    private final GenreRowMapper mapper;
-
-    private static final String FIND_ALL_QUERY = "SELECT * FROM genres ORDER BY genre_id";
-
-    private static final String FIND_BY_ID_QUERY = "SELECT * FROM genres WHERE genre_id = ?";
+    private final DictionaryRegistry dictionaries;
 
+    // названия жанров берутся из справочника в памяти, из БД читаются только ID
     private static final String FIND_BY_FILM_ID =
-            """
-            SELECT g.genre_id, g.name
-            FROM film_genres AS fg
-            JOIN genres AS g ON g.genre_id = fg.genre_id
-            WHERE fg.film_id = ?""";
+            "SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id";
+
+    // один запрос на любую пачку фильмов: список ID передается единственным параметром-массивом
+    private static final String FIND_BY_FILM_IDS =
+            "SELECT film_id, genre_id FROM film_genres WHERE film_id = ANY(?) ORDER BY film_id, genre_id";
 
     @Override
     public Collection<Genre> findAll() {
-        return jdbc.query(FIND_ALL_QUERY,  mapper);
+        return dictionaries.getGenres();
     }
 
     @Override
     public Genre findOneById(Integer id) {
-        try {
-            return jdbc.queryForObject(FIND_BY_ID_QUERY, mapper, id);
-        }  catch (EmptyResultDataAccessException exception) {
+        final Genre genre = dictionaries.findGenre(id);
+        if (genre == null) {
             log.error("При поиске жанра получен идентификатор, отсутствующий в таблице genres: {}", id);
-            throw new NotFoundException("Идентификтор жанра не найден", exception);
+            throw new NotFoundException("Идентификтор жанра не найден");
         }
+        return genre;
     }
 
     @Override
     public boolean exists(Integer id) {
-        try {
-            Genre genre = jdbc.queryForObject(FIND_BY_ID_QUERY, mapper, id);
-            return genre != null;
-        }  catch (EmptyResultDataAccessException exception) {
+        if (!dictionaries.genreExists(id)) {
             log.error("В ходе проверки жанра получен идентификатор, отсутствующий в таблице genres: {}", id);
-            throw new ValidationException("Идентификтор жанра неизвестен", exception);
+            throw new ValidationException("Идентификтор жанра неизвестен");
         }
+        return true;
     }
 
     @Override
     public List<Genre> getFilmGenres(Long filmId) {
-        return jdbc.query(FIND_BY_FILM_ID, mapper, filmId);
+        return jdbc.query(FIND_BY_FILM_ID, (resultSet, rowNum) -> dictionaries.findGenre(resultSet.getInt("genre_id")),
+                filmId);
+    }
+
+    @Override
+    public Map<Long, List<Genre>> getFilmsGenres(Collection<Long> filmIds) {
+        final Map<Long, List<Genre>> filmsGenres = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return filmsGenres;
+        }
+        jdbc.query(FIND_BY_FILM_IDS, (RowCallbackHandler) resultSet -> {
+            final Long filmId = resultSet.getLong("film_id");
+            filmsGenres.computeIfAbsent(filmId, id -> new ArrayList<>())
+                    .add(dictionaries.findGenre(resultSet.getInt("genre_id")));
+        }, (Object) filmIds.toArray(new Long[0]));
+        return filmsGenres;
     }
 }
@@ -4,6 +4,7 @@ import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface GenreStorage {
 
@@ -14,4 +15,6 @@ public interface GenreStorage {
     boolean exists(Integer id);
 
     List<Genre> getFilmGenres(Long filmId);
+
+    Map<Long, List<Genre>> getFilmsGenres(Collection<Long> filmIds);
 }
\ No newline at end of file
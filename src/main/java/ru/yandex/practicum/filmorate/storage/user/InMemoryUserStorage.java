@@ -2,26 +2,67 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.utils.SortedLongArrays;
+import ru.yandex.practicum.filmorate.storage.utils.StripedLocks;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
 import ru.yandex.practicum.filmorate.storage.user.utils.UserValidations;
 
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище пользователей в памяти, безопасное для одновременных запросов.
+ * Пользователи лежат в ConcurrentHashMap, ID выдаются атомарным счетчиком за O(1),
+ * друзья хранятся в потокобезопасных LongHashSet. Дружба двусторонняя: обе стороны меняются
+ * под блокировками обоих пользователей, поэтому встречные добавления и удаления друзей
+ * не оставляют дружбу записанной только у одного из них.
+ */
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
 
     @Override
     public Collection<User> findAll() {
         return users.values();
     }
 
+    @Override
+    public Collection<User> findPage(long after, int limit) {
+        return users.values().stream()
+                .filter(user -> user.getId() > after)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+
     @Override
     public User create(User user) {
         // проверяем выполнение необходимых условий
         UserValidations.prepareCreation(user);
+        return add(user);
+    }
 
+    @Override
+    public List<User> createAll(List<User> users) {
+        users.forEach(this::add);
+        return users;
+    }
+
+    private User add(User user) {
         // формируем ID
-        user.setId(getNextId());
+        user.setId(lastId.incrementAndGet());
+        user.setFriendIds(new LongHashSet());
 
         // сохраняем нового пользователя в памяти приложения и возвращаем его
         users.put(user.getId(), user);
@@ -31,17 +72,39 @@ public class InMemoryUserStorage implements UserStorage {
     @Override
     public User update(User user) {
         Long id = user.getId();
-        // проверяем необходимые условия
-        UserValidations.prepareUpdate(id, user, users.get(id));
-
-        // если пользователь найден и все условия соблюдены, обновляем его и возвращаем обновленный объект user
-        users.put(id, user);
-        return user;
+        // обновление под той же блокировкой, что и удаление: удаленный пользователь не вернется в хранилище
+        return locks.callLocked(id, () -> {
+            // проверяем необходимые условия
+            final User oldUser = users.get(id);
+            UserValidations.prepareUpdate(id, user, oldUser);
+
+            // если пользователь найден и все условия соблюдены, обновляем его и возвращаем обновленный объект user;
+            // друзья меняются только отдельными запросами, поэтому остаются прежними
+            user.setFriendIds(oldUser.getFriendIds());
+            users.put(id, user);
+            return user;
+        });
     }
 
     @Override
     public User delete(Long id) {
-        return users.remove(id);
+        // удаление под блокировкой пользователя: добавление друга либо завершится до него
+        // и попадет в обход ниже, либо увидит, что пользователя уже нет
+        final User user = locks.callLocked(id, () -> users.remove(id));
+        if (user == null) {
+            return null;
+        }
+        // удаленный пользователь больше не может быть ничьим другом
+        for (Long friendId : user.getFriendIds()) {
+            locks.runLocked(id, friendId, () -> {
+                user.getFriendIds().remove(friendId);
+                final User friendUser = users.get(friendId);
+                if (friendUser != null) {
+                    friendUser.getFriendIds().remove(id);
+                }
+            });
+        }
+        return user;
     }
 
     @Override
@@ -51,6 +114,7 @@ public class InMemoryUserStorage implements UserStorage {
         return user.getFriendIds()
                 .stream()
                 .map(users::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
@@ -59,11 +123,43 @@ public class InMemoryUserStorage implements UserStorage {
         final User user = users.get(id);
         final User otherUser = users.get(otherId);
         UserValidations.validateTwoUsersNotNull(user, otherUser, id, otherId);
-        Set<Long> commonUserIds = new HashSet<>(user.getFriendIds());
-        commonUserIds.retainAll(otherUser.getFriendIds());
-        return commonUserIds
-                .stream()
-                .map(users::get)
+        final long[] commonUserIds = SortedLongArrays.intersect(sortedIds(user.getFriendIds()),
+                sortedIds(otherUser.getFriendIds()));
+        return Arrays.stream(commonUserIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public int countFriends(Long id) {
+        final User user = users.get(id);
+        UserValidations.validateOneUserNotNull(user, id);
+        return user.getFriendIds().size();
+    }
+
+    @Override
+    public Collection<User> findFriendSuggestions(Long id, int limit) {
+        final User user = users.get(id);
+        UserValidations.validateOneUserNotNull(user, id);
+        final Map<Long, Integer> mutualCounts = new HashMap<>();
+        for (Long friendId : user.getFriendIds()) {
+            final User friendUser = users.get(friendId);
+            if (friendUser == null) {
+                continue;
+            }
+            for (Long candidateId : friendUser.getFriendIds()) {
+                if (!candidateId.equals(id) && !user.getFriendIds().contains(candidateId)) {
+                    mutualCounts.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        return mutualCounts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> users.get(entry.getKey()))
+                .filter(Objects::nonNull)
                 .toList();
     }
 
@@ -72,8 +168,13 @@ public class InMemoryUserStorage implements UserStorage {
         final User user = users.get(id);
         final User friendUser = users.get(friendId);
         UserValidations.validateTwoUsersNotNull(user, friendUser, id, friendId);
-        user.getFriendIds().add(friendId);
-        friendUser.getFriendIds().add(id);
+        locks.runLocked(id, friendId, () -> {
+            // пользователя могли удалить, пока поток ждал блокировку
+            if (users.containsKey(id) && users.containsKey(friendId)) {
+                user.getFriendIds().add(friendId);
+                friendUser.getFriendIds().add(id);
+            }
+        });
     }
 
     @Override
@@ -81,8 +182,10 @@ public class InMemoryUserStorage implements UserStorage {
         final User user = users.get(id);
         final User friendUser = users.get(friendId);
         UserValidations.validateTwoUsersNotNull(user, friendUser, id, friendId);
-        user.getFriendIds().remove(friendId);
-        friendUser.getFriendIds().remove(id);
+        locks.runLocked(id, friendId, () -> {
+            user.getFriendIds().remove(friendId);
+            friendUser.getFriendIds().remove(id);
+        });
         return friendUser;
     }
 
@@ -93,12 +196,8 @@ public class InMemoryUserStorage implements UserStorage {
         return true;
     }
 
-    private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    private static long[] sortedIds(Set<Long> ids) {
+        return ids instanceof LongHashSet longIds ? longIds.toArray(true)
+                : ids.stream().mapToLong(Long::longValue).sorted().toArray();
     }
 }
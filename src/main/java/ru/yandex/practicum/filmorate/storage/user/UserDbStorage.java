@@ -1,18 +1,32 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.index.FriendGraphIndex;
 import ru.yandex.practicum.filmorate.storage.user.utils.UserRowMapper;
 import ru.yandex.practicum.filmorate.storage.user.utils.UserValidations;
+import ru.yandex.practicum.filmorate.storage.utils.GroupedLongArrays;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
@@ -21,112 +35,246 @@ import java.util.*;
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbc;
     private final UserRowMapper mapper;
+    private final FriendGraphIndex friendGraph;
+
+    // вставки компилируются (с чтением метаданных таблиц) один раз при старте и затем переиспользуются
+    private SimpleJdbcInsert userInsert;
+
+    // сколько строк за раз драйвер вычитывает из ResultSet при потоковой выдаче всех пользователей
+    private static final int STREAM_FETCH_SIZE = 500;
 
     private static final String FIND_ALL_QUERY = "SELECT * FROM users ORDER BY user_id";
 
+    // keyset-пагинация: следующая страница начинается после последнего ID предыдущей
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE user_id = ?";
 
-    private static final String UPDATE_QUERY = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? " +
-            "WHERE user_id = ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM users WHERE user_id = ANY(?)";
+
+    private static final String INSERT_USER_QUERY = "INSERT INTO users (email, login, name, birthday) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String EXISTS_QUERY = "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)";
+
+    private static final String BOTH_EXIST_QUERY = "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?), " +
+            "EXISTS (SELECT 1 FROM users WHERE user_id = ?)";
 
-    private static final String DELETE_USER_QUERY = "DELETE FROM users WHERE user_id = ?";
+    // обновление одним запросом: пустые login и name (null) не изменяются, из FINAL TABLE читается
+    // итоговая строка; пустой результат означает, что пользователя нет
+    private static final String UPDATE_QUERY = "SELECT * FROM FINAL TABLE (UPDATE users SET email = ?, " +
+            "login = COALESCE(?, login), name = COALESCE(?, name), birthday = ? WHERE user_id = ?)";
+
+    // удаление одним запросом с возвратом удаленной строки из OLD TABLE
+    private static final String DELETE_USER_QUERY = "SELECT * FROM OLD TABLE (DELETE FROM users WHERE user_id = ?)";
 
     private static final String FIND_FRIENDS_QUERY = "SELECT * FROM users WHERE user_id IN " +
             "(SELECT friend_id FROM user_friends WHERE user_id = ?)";
 
-    private static final String FIND_COMMON_FRIENDS_QUERY = "SELECT * FROM users WHERE user_id IN " +
-            "(SELECT friend_id FROM user_friends WHERE user_id = ? INTERSECT " +
-            "SELECT friend_id FROM user_friends WHERE user_id = ?)";
+    private static final String FIND_ALL_FRIENDSHIPS_QUERY =
+            "SELECT user_id, friend_id FROM user_friends ORDER BY user_id, friend_id";
+
+    // вставка дружбы, только если ее еще нет, а оба пользователя существуют: число вставленных строк 0 или 1
+    private static final String INSERT_FRIEND_IF_ABSENT_QUERY = """
+            INSERT INTO user_friends (user_id, friend_id, status)
+            SELECT u.user_id, f.user_id, 0
+            FROM users AS u, users AS f
+            WHERE u.user_id = ? AND f.user_id = ?
+              AND NOT EXISTS (SELECT 1 FROM user_friends AS uf WHERE uf.user_id = u.user_id AND uf.friend_id = f.user_id)""";
 
     private static final String DELETE_FRIEND_QUERY = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
 
+    @PostConstruct
+    public void init() {
+        userInsert = new SimpleJdbcInsert(jdbc)
+                .withTableName("users")
+                .usingGeneratedKeyColumns("user_id");
+        userInsert.compile();
+        rebuildFriendGraph();
+    }
+
+    // перечитывает из БД все связи дружбы и перестраивает по ним граф в памяти
+    public void rebuildFriendGraph() {
+        // строки отсортированы по user_id и friend_id: друзья каждого пользователя - отсортированный массив
+        final GroupedLongArrays friends = new GroupedLongArrays("user_id", "friend_id");
+        jdbc.query(FIND_ALL_FRIENDSHIPS_QUERY, friends);
+        final Map<Long, long[]> usersFriends = friends.toMap();
+        friendGraph.rebuild(usersFriends);
+        log.info("Граф дружбы построен по {} пользователям с друзьями", usersFriends.size());
+    }
+
     @Override
     public Collection<User> findAll() {
         return jdbc.query(FIND_ALL_QUERY,  mapper);
     }
 
+    @Override
+    public Collection<User> findPage(long after, int limit) {
+        return jdbc.query(FIND_PAGE_QUERY,  mapper, after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_ALL_QUERY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(mapper.mapRow(resultSet, resultSet.getRow())));
+    }
+
     @Override
     public User create(User user) {
         // проверяем выполнение необходимых условий
         UserValidations.prepareCreation(user);
 
         // добавляем пользователя в таблицу с формирванием ID из последовательности users.user_id
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbc)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("user_id");
-        long id = simpleJdbcInsert.executeAndReturnKey(toUserMap(user)).longValue();
+        long id = userInsert.executeAndReturnKey(toUserMap(user)).longValue();
         user.setId(id);
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        // все пользователи пачки добавляются одним пакетом JDBC, сгенерированные ID возвращаются в порядке вставки
+        final KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement(INSERT_USER_QUERY, new String[]{"user_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        final User user = users.get(i);
+                        statement.setString(1, user.getEmail());
+                        statement.setString(2, user.getLogin());
+                        statement.setString(3, user.getName());
+                        statement.setObject(4, user.getBirthday());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                }, keyHolder);
+        final List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        return users;
+    }
+
     @Override
     public User update(User user) {
         final Long id = user.getId();
 
         // проверяем необходимые условия
-        User oldUser = findOneById(id);
-        UserValidations.prepareUpdate(id, user, oldUser);
+        UserValidations.validateUpdate(id, user);
 
-        // если пользователь найден и все условия соблюдены, обновляем его и возвращаем обновленный объект user
-        final int rowsCount = jdbc.update(UPDATE_QUERY, user.getEmail(), user.getLogin(),
+        // обновляем пользователя, если он есть, и возвращаем объект user с сохраненными значениями полей
+        final List<User> updated = jdbc.query(UPDATE_QUERY, mapper, user.getEmail(), user.getLogin(),
                 user.getName(), user.getBirthday(), id);
-        if (rowsCount == 0) {
-            log.error("Не найден пользователь с ID = {} при update в БД", id);
-            throw new NotFoundException("Не удалось обновить пользователя в БД.");
+        if (updated.isEmpty()) {
+            log.error("По указанному для обновления ID пользователя {} нет сохраненной информации", id);
+            throw new NotFoundException("По указанному идентификтору пользователь для обновления не найден");
         }
+        user.setLogin(updated.get(0).getLogin());
+        user.setName(updated.get(0).getName());
         return user;
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id")
     public User delete(Long id) {
-        final User oldUser = findOneById(id);
-        UserValidations.validateOneUserNotNull(oldUser, id);
-        return jdbc.update(DELETE_USER_QUERY, id) > 0 ? oldUser : null;
+        final List<User> deleted = jdbc.query(DELETE_USER_QUERY, mapper, id);
+        UserValidations.validateUserExists(!deleted.isEmpty(), id);
+        friendGraph.removeUser(id);
+        return deleted.get(0);
     }
 
     @Override
     public Collection<User> findAllFriends(Long id) {
-        final User user = findOneById(id);
-        UserValidations.validateOneUserNotNull(user, id);
-        return jdbc.query(FIND_FRIENDS_QUERY,  mapper, id);
+        final List<User> friends = jdbc.query(FIND_FRIENDS_QUERY,  mapper, id);
+        if (friends.isEmpty()) {
+            requireUser(id);
+        }
+        return friends;
     }
 
     @Override
     public Collection<User> findCommonFriends(Long id, Long otherId) {
-        final User user = findOneById(id);
-        final User otherUser = findOneById(otherId);
-        UserValidations.validateTwoUsersNotNull(user, otherUser, id, otherId);
-        return jdbc.query(FIND_COMMON_FRIENDS_QUERY,  mapper, id, otherId);
+        final long[] commonIds = friendGraph.findCommonFriends(id, otherId);
+        if (commonIds.length == 0) {
+            requireUsers(id, otherId);
+        }
+        return findByIds(commonIds);
     }
 
     @Override
-    public void addFriend(Long id, Long friendId) {
-        final User user = findOneById(id);
-        final User friendUser = findOneById(friendId);
-        UserValidations.validateTwoUsersNotNull(user, friendUser, id, friendId);
+    public int countFriends(Long id) {
+        final int count = friendGraph.countFriends(id);
+        if (count == 0) {
+            requireUser(id);
+        }
+        return count;
+    }
+
+    @Override
+    public Collection<User> findFriendSuggestions(Long id, int limit) {
+        final List<Long> suggestedIds = friendGraph.findSuggestions(id, limit);
+        if (suggestedIds.isEmpty()) {
+            requireUser(id);
+            return new ArrayList<>();
+        }
+        final Map<Long, User> usersById = new HashMap<>();
+        findByIds(suggestedIds.stream().mapToLong(Long::longValue).toArray())
+                .forEach(suggested -> usersById.put(suggested.getId(), suggested));
+        return suggestedIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbc).withTableName("user_friends");
-        simpleJdbcInsert.execute(toUserFriendMap(id, friendId));
+    @Override
+    @Transactional
+    public void addFriend(Long id, Long friendId) {
+        // ничего не вставлено: либо нет кого-то из пользователей, либо дружба уже есть
+        if (jdbc.update(INSERT_FRIEND_IF_ABSENT_QUERY, id, friendId) == 0) {
+            requireUsers(id, friendId);
+        }
         // дружба должна стать односторонней: если какой-то пользователь оставил вам заявку в друзья,
         // то он будет в списке ваших друзей, а вы в его — нет: надо удалить "себя" у "друга"
         jdbc.update(DELETE_FRIEND_QUERY, friendId, id);
+        friendGraph.addFriend(id, friendId);
+        friendGraph.removeFriend(friendId, id);
     }
 
     @Override
     public User deleteFriend(Long id, Long friendId) {
-        final User user = findOneById(id);
-        final User friendUser = findOneById(friendId);
-        UserValidations.validateTwoUsersNotNull(user, friendUser, id, friendId);
-        return jdbc.update(DELETE_FRIEND_QUERY, id, friendId) > 0 ? friendUser : null;
+        if (jdbc.update(DELETE_FRIEND_QUERY, id, friendId) == 0) {
+            requireUsers(id, friendId);
+            return null;
+        }
+        friendGraph.removeFriend(id, friendId);
+        return findOneById(friendId);
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#id")
     public boolean exists(Long id) {
-        final User user = findOneById(id);
-        UserValidations.validateOneUserNotNull(user, id);
+        requireUser(id);
         return true;
     }
 
+    // существование пользователей проверяется отдельным запросом, только когда по результату основного
+    // нельзя отличить несуществующего пользователя от пользователя без друзей (или уже выполненное изменение)
+    private void requireUser(Long id) {
+        UserValidations.validateUserExists(Boolean.TRUE.equals(jdbc.queryForObject(EXISTS_QUERY, Boolean.class, id)),
+                id);
+    }
+
+    private void requireUsers(Long id, Long otherId) {
+        jdbc.query(BOTH_EXIST_QUERY, (RowCallbackHandler) resultSet -> UserValidations.validateTwoUsersExist(
+                resultSet.getBoolean(1), resultSet.getBoolean(2), id, otherId), id, otherId);
+    }
+
     private Map<String, Object> toUserMap(User user) {
         Map<String, Object> values = new HashMap<>();
         values.put("email", user.getEmail());
@@ -136,12 +284,11 @@ public class UserDbStorage implements UserStorage {
         return values;
     }
 
-    private Map<String, Object> toUserFriendMap(Long userId, Long friendId) {
-        Map<String, Object> values = new HashMap<>();
-        values.put("user_id", userId);
-        values.put("friend_id", friendId);
-        values.put("status", 0);    // не подтвержденный статус дружбы при добавлении
-        return values;
+    private List<User> findByIds(long[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        return jdbc.query(FIND_BY_IDS_QUERY, mapper, (Object) Arrays.stream(ids).boxed().toArray(Long[]::new));
     }
 
     private User findOneById(long id) {
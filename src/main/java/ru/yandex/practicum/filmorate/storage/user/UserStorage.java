@@ -3,12 +3,21 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    Collection<User> findPage(long after, int limit);
+
+    void streamAll(Consumer<User> action);
+
     User create(User user);
 
+    // пользователи уже подготовлены вызывающим (UserValidations.prepareCreation), как фильмы в FilmStorage
+    List<User> createAll(List<User> users);
+
     User update(User user);
 
     User delete(Long id);
@@ -17,6 +26,11 @@ public interface UserStorage {
 
     Collection<User> findCommonFriends(Long id, Long otherId);
 
+    int countFriends(Long id);
+
+    // друзья друзей, которых еще нет в друзьях, по убыванию числа общих друзей
+    Collection<User> findFriendSuggestions(Long id, int limit);
+
     void addFriend(Long id, Long friendId);
 
     User deleteFriend(Long id, Long friendId);
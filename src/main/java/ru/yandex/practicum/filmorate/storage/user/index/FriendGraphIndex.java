@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage.user.index;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.utils.SortedLongArrays;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Граф дружбы в памяти приложения.
+ * Друзья каждого пользователя хранятся неизменяемым отсортированным массивом long[]:
+ * изменение заменяет массив целиком (атомарно для ключа), а чтение идет без блокировок.
+ * Общие друзья находятся пересечением двух отсортированных массивов ({@link SortedLongArrays#intersect}).
+ */
+@Component
+public class FriendGraphIndex {
+    private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+
+    // полностью перестраивает граф по спискам друзей, прочитанным из хранилища
+    public void rebuild(Map<Long, long[]> usersFriends) {
+        friends.clear();
+        usersFriends.forEach((userId, friendIds) -> {
+            final long[] sorted = friendIds.clone();
+            Arrays.sort(sorted);
+            friends.put(userId, sorted);
+        });
+    }
+
+    public void addFriend(long userId, long friendId) {
+        friends.compute(userId, (id, friendIds) ->
+                SortedLongArrays.insert(friendIds == null ? SortedLongArrays.EMPTY : friendIds, friendId));
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        friends.computeIfPresent(userId, (id, friendIds) -> {
+            final long[] result = SortedLongArrays.delete(friendIds, friendId);
+            return result.length == 0 ? null : result;
+        });
+    }
+
+    // удалить из БД можно только пользователя, которого нет в чужих списках друзей,
+    // поэтому достаточно убрать его собственный список
+    public void removeUser(long userId) {
+        friends.remove(userId);
+    }
+
+    public long[] getFriends(long userId) {
+        return friends.getOrDefault(userId, SortedLongArrays.EMPTY);
+    }
+
+    public int countFriends(long userId) {
+        return getFriends(userId).length;
+    }
+
+    public long[] findCommonFriends(long userId, long otherId) {
+        return SortedLongArrays.intersect(getFriends(userId), getFriends(otherId));
+    }
+
+    /**
+     * Друзья друзей, которые еще не в друзьях у пользователя.
+     * Упорядочены по убыванию числа общих друзей, при равенстве - по возрастанию ID.
+     */
+    public List<Long> findSuggestions(long userId, int limit) {
+        final long[] own = getFriends(userId);
+        final Map<Long, Integer> mutualCounts = new HashMap<>();
+        for (long friendId : own) {
+            for (long candidateId : getFriends(friendId)) {
+                if (candidateId != userId && Arrays.binarySearch(own, candidateId) < 0) {
+                    mutualCounts.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        return mutualCounts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
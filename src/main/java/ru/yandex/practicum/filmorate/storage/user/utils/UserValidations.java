@@ -15,12 +15,30 @@ public class UserValidations {
         }
     }
 
-    public static void prepareUpdate(final Long id, final User user, final User oldUser) {
+    // проверки обновления, не требующие прежней версии пользователя; пустые login и name заменяются на null -
+    // такие поля при обновлении не изменяются
+    public static void validateUpdate(final Long id, final User user) {
         if (id == null) {
             log.error("Получен пустой идентификатор пользователя при обновлении");
             throw new ValidationException("Идентификтор пользователя не может быть пустым для команды обновления");
         }
 
+        final String login = user.getLogin();
+        if (login == null || login.trim().isBlank()) {
+            log.warn("Не получен или указан пустой login пользователя при обновлении: login не изменяется");
+            user.setLogin(null);
+        }
+
+        final String name = user.getName();
+        if (name == null || name.trim().isBlank()) {
+            log.warn("Не получено или указано пустое имя пользователя при обновлении: name не изменяется");
+            user.setName(null);
+        }
+    }
+
+    public static void prepareUpdate(final Long id, final User user, final User oldUser) {
+        validateUpdate(id, user);
+
         if (oldUser == null) {
             log.error("По указанному для обновления ID пользователя {} нет сохраненной информации", id);
             throw new NotFoundException("По указанному идентификтору пользователь для обновления не найден");
@@ -31,32 +49,35 @@ public class UserValidations {
             throw new ValidationException("По указанному идентификтору найден пользователь с другим ид.");
         }
 
-        final String login = user.getLogin();
-        if (login == null || login.trim().isBlank()) {
-            log.warn("Не получен или указан пустой login пользователя при обновлении: login не изменяется");
+        if (user.getLogin() == null) {
             user.setLogin(oldUser.getLogin());
         }
-
-        final String name = user.getName();
-        if (name == null || name.trim().isBlank()) {
-            log.warn("Не получено или указано пустое имя пользователя при обновлении: name не изменяется");
+        if (user.getName() == null) {
             user.setName(oldUser.getName());
         }
     }
 
     public static void validateOneUserNotNull(User user, Long id) {
-        if (user == null) {
+        validateUserExists(user != null, id);
+    }
+
+    public static void validateUserExists(boolean exists, Long id) {
+        if (!exists) {
             log.error("Получен идентификатор пользователя, который отсутствует в хранилище: {}", id);
             throw new NotFoundException("Идентификтор пользователя неизвестен");
         }
     }
 
     public static void validateTwoUsersNotNull(User user, User otherUser, Long id, Long otherId) {
-        if (user == null) {
+        validateTwoUsersExist(user != null, otherUser != null, id, otherId);
+    }
+
+    public static void validateTwoUsersExist(boolean exists, boolean otherExists, Long id, Long otherId) {
+        if (!exists) {
             log.error("Получен идентификатор 1-го пользователя, который отсутствует в хранилище: {}", id);
             throw new NotFoundException("Идентификтор 1-го пользователя неизвестен");
         }
-        if (otherUser == null) {
+        if (!otherExists) {
             log.error("Получен идентификатор 2-го пользователя, который отсутствует в хранилище: {}", otherId);
             throw new NotFoundException("Идентификтор 2-го пользователя неизвестен");
         }
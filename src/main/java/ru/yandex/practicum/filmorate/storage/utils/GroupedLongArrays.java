@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage.utils;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Собирает строки (ключ, значение), отсортированные по ключу, в массивы long[] значений по ключам -
+ * в том виде, в каком их хранят индексы в памяти (SortedLongArrays). Значения одного ключа идут подряд,
+ * поэтому копятся в одном растущем массиве, и на каждый ключ создается один массив точного размера.
+ * Если внутри ключа строки отсортированы и по значению, массивы тоже получаются отсортированными.
+ */
+public final class GroupedLongArrays implements RowCallbackHandler {
+    private final String keyColumn;
+    private final String valueColumn;
+    private final Map<Long, long[]> arrays = new HashMap<>();
+    private long key = -1;
+    private long[] values = new long[16];
+    private int count;
+
+    public GroupedLongArrays(String keyColumn, String valueColumn) {
+        this.keyColumn = keyColumn;
+        this.valueColumn = valueColumn;
+    }
+
+    @Override
+    public void processRow(ResultSet resultSet) throws SQLException {
+        final long rowKey = resultSet.getLong(keyColumn);
+        if (rowKey != key) {
+            flush();
+            key = rowKey;
+        }
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = resultSet.getLong(valueColumn);
+    }
+
+    // массивы по ключам; вызывается после чтения всех строк
+    public Map<Long, long[]> toMap() {
+        flush();
+        return arrays;
+    }
+
+    private void flush() {
+        if (count > 0) {
+            arrays.put(key, Arrays.copyOf(values, count));
+            count = 0;
+        }
+    }
+}
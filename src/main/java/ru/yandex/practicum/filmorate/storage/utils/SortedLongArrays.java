@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.utils;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными по возрастанию массивами long[] без повторов, которыми индексы в памяти
+ * хранят связи (друзей пользователя, лайки фильма). Изменение возвращает новый массив, а переданный не трогает,
+ * поэтому читатели старого массива работают без блокировок.
+ */
+public final class SortedLongArrays {
+    public static final long[] EMPTY = new long[0];
+
+    // при таком и большем соотношении размеров массивов галопирующий поиск быстрее слияния
+    private static final int GALLOP_RATIO = 32;
+
+    private SortedLongArrays() {
+    }
+
+    public static long[] insert(long[] array, long value) {
+        int position = Arrays.binarySearch(array, value);
+        if (position >= 0) {
+            return array;
+        }
+        position = -position - 1;
+        final long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    public static long[] delete(long[] array, long value) {
+        final int position = Arrays.binarySearch(array, value);
+        if (position < 0) {
+            return array;
+        }
+        final long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+
+    /**
+     * Пересечение без упаковки в Long: слиянием для близких по размеру массивов,
+     * для сильно различающихся - галопирующим (экспоненциальным) поиском элементов меньшего в большем.
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        final long[] small = first.length <= second.length ? first : second;
+        final long[] large = small == first ? second : first;
+        final long[] result = new long[small.length];
+        int count = 0;
+        if ((long) small.length * GALLOP_RATIO <= large.length) {
+            int from = 0;
+            for (long value : small) {
+                from = gallop(large, from, value);
+                if (from == large.length) {
+                    break;
+                }
+                if (large[from] == value) {
+                    result[count++] = value;
+                }
+            }
+        } else {
+            // продвижение индексов без ветвлений: при случайном чередовании значений переходы не предсказываются
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                final long a = small[i];
+                final long b = large[j];
+                result[count] = a;
+                count += a == b ? 1 : 0;
+                i += a <= b ? 1 : 0;
+                j += a >= b ? 1 : 0;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // индекс первого элемента массива, не меньшего value, начиная с позиции from
+    private static int gallop(long[] array, int from, long value) {
+        if (from >= array.length || array[from] >= value) {
+            return from;
+        }
+        int bound = 1;
+        while (from + bound < array.length && array[from + bound] < value) {
+            bound <<= 1;
+        }
+        final int position = Arrays.binarySearch(array, from + (bound >> 1) + 1,
+                Math.min(from + bound + 1, array.length), value);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.utils;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Фиксированный набор блокировок, между которыми ID сущностей распределяются по хэшу.
+ * Операции над разными сущностями в основном идут параллельно, а память под блокировки
+ * не зависит от количества сущностей. Две блокировки всегда берутся в порядке номеров,
+ * поэтому встречные операции над одной парой сущностей не могут взаимно заблокироваться.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T callLocked(long id, Supplier<T> action) {
+        final ReentrantLock lock = locks[stripe(id)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void runLocked(long id, long otherId, Runnable action) {
+        final int stripe = stripe(id);
+        final int otherStripe = stripe(otherId);
+        final ReentrantLock first = locks[Math.min(stripe, otherStripe)];
+        final ReentrantLock second = locks[Math.max(stripe, otherStripe)];
+        first.lock();
+        try {
+            second.lock();  // для одной и той же блокировки ReentrantLock просто увеличит счетчик захватов
+            try {
+                action.run();
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    private int stripe(long id) {
+        return Math.floorMod(Long.hashCode(id) * 0x9E3779B9, locks.length);
+    }
+}
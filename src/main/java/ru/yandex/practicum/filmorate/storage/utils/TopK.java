@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.utils;
+
+import java.util.*;
+import java.util.stream.Collector;
+
+/**
+ * Выбор K первых элементов в заданном порядке без сортировки всей коллекции.
+ * Кандидаты держатся в куче размером K, на вершине которой худший из них, поэтому
+ * выбор занимает O(n log K) времени и O(K) памяти вместо O(n log n) у полной сортировки.
+ * Большие коллекции обрабатываются параллельно: каждая часть набирает свою кучу, затем кучи сливаются.
+ */
+public final class TopK {
+    // меньше этого размера накладные расходы fork-join не окупаются
+    private static final int PARALLEL_THRESHOLD = 100_000;
+
+    private TopK() {
+    }
+
+    /**
+     * Порядок должен быть полным (без равных элементов), иначе при равенстве результат может зависеть
+     * от порядка обхода коллекции.
+     */
+    public static <T> List<T> select(Collection<T> items, int k, Comparator<? super T> order) {
+        if (k <= 0 || items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (items.size() >= PARALLEL_THRESHOLD) {
+            return items.parallelStream().collect(collector(k, order));
+        }
+        return items.stream().collect(collector(k, order));
+    }
+
+    public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> order) {
+        return Collector.of(
+                () -> new BoundedHeap<T>(k, order),
+                BoundedHeap::offer,
+                BoundedHeap::merge,
+                BoundedHeap::toSortedList);
+    }
+
+    private static final class BoundedHeap<T> {
+        private final int capacity;
+        private final Comparator<? super T> order;
+        private final PriorityQueue<T> heap;
+
+        private BoundedHeap(int capacity, Comparator<? super T> order) {
+            this.capacity = capacity;
+            this.order = order;
+            // на вершине кучи - последний по порядку кандидат, его и вытесняет лучший элемент
+            this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, order.reversed());
+        }
+
+        private void offer(T item) {
+            if (heap.size() < capacity) {
+                heap.add(item);
+            } else if (order.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+
+        private BoundedHeap<T> merge(BoundedHeap<T> other) {
+            other.heap.forEach(this::offer);
+            return this;
+        }
+
+        private List<T> toSortedList() {
+            final List<T> result = new ArrayList<>(heap);
+            result.sort(order);
+            return result;
+        }
+    }
+}
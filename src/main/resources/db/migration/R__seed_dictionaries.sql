@@ -0,0 +1,16 @@
+-- справочники MPA-рейтингов и жанров. Повторяемая миграция: Flyway применяет ее заново только при изменении
+-- этого файла, а MERGE ... KEY добавляет недостающие записи и обновляет названия, не трогая остальные данные
+MERGE INTO mpa_dict (mpa_id, name) KEY (mpa_id) VALUES
+    (1, 'G'),
+    (2, 'PG'),
+    (3, 'PG-13'),
+    (4, 'R'),
+    (5, 'NC-17');
+
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES
+    (1, 'Комедия'),
+    (2, 'Драма'),
+    (3, 'Мультфильм'),
+    (4, 'Триллер'),
+    (5, 'Документальный'),
+    (6, 'Боевик');
@@ -0,0 +1,73 @@
+-- исходная схема filmorate. Все команды идемпотентны (IF NOT EXISTS), поэтому миграция безопасно
+-- применяется и к пустой БД, и к файлу БД, созданному до перехода на Flyway прежним schema.sql
+CREATE TABLE IF NOT EXISTS mpa_dict (
+    mpa_id integer NOT NULL GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(100),
+    CONSTRAINT mpa_dict_pk PRIMARY KEY (mpa_id)
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    film_id integer NOT NULL GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(40) NOT NULL,
+    description varchar(200),
+    release_date date,
+    duration integer,
+    mpa_rating integer,
+    likes_count integer NOT NULL DEFAULT 0,
+    CONSTRAINT films_pk PRIMARY KEY (film_id),
+    FOREIGN KEY (mpa_rating) REFERENCES mpa_dict(mpa_id)
+);
+
+-- счетчик лайков мог отсутствовать в БД, созданных до его появления; значения один раз пересчитывает
+-- миграция V2, а сверить их с таблицей лайков можно через POST /actuator/consistency
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count integer NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id integer NOT NULL GENERATED BY DEFAULT AS IDENTITY,
+    email varchar(100) NOT NULL,
+    login varchar(100) NOT NULL,
+    name varchar(100),
+    birthday date CHECK (birthday <= CURRENT_DATE),
+    CONSTRAINT users_pk PRIMARY KEY (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS user_friends (
+    user_id integer NOT NULL,
+    friend_id integer NOT NULL,
+    status integer NOT NULL DEFAULT 0,
+    CONSTRAINT user_friends_pk PRIMARY KEY (user_id, friend_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id),
+    FOREIGN KEY (friend_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id integer NOT NULL,
+    user_id integer NOT NULL,
+    CONSTRAINT film_likes_pk PRIMARY KEY (film_id, user_id),
+    FOREIGN KEY (film_id) REFERENCES films(film_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS genres (
+    genre_id integer NOT NULL GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(100),
+    CONSTRAINT genres_pk PRIMARY KEY (genre_id)
+);
+
+CREATE TABLE IF NOT EXISTS film_genres (
+    film_id integer NOT NULL,
+    genre_id integer NOT NULL,
+    CONSTRAINT film_genres_pk PRIMARY KEY (film_id, genre_id),
+    FOREIGN KEY (film_id) REFERENCES films(film_id),
+    FOREIGN KEY (genre_id) REFERENCES genres(genre_id)
+);
+
+-- вторичные индексы. Для столбцов внешних ключей (в том числе films.mpa_rating и film_genres.genre_id)
+-- H2 создает одностолбцовые индексы сам; здесь - составные индексы обратных направлений первичных ключей,
+-- которые отвечают на выборки "лайки пользователя", "у кого пользователь в друзьях", "фильмы жанра"
+-- только по индексу, без чтения строк таблиц
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS user_friends_friend_idx ON user_friends (friend_id, user_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
+-- покрывающий индекс рейтинга популярности: счетчики лайков читаются без обращения к строкам films
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, film_id);
@@ -0,0 +1,6 @@
+-- однократный пересчет счетчиков лайков для БД, созданных до появления films.likes_count:
+-- столбец добавлялся в V1 со значением 0. Дальше счетчики обновляются вместе с film_likes,
+-- а рейтинг популярности при старте строится по ним без пересчета
+UPDATE films AS f
+SET likes_count = (SELECT count(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id)
+WHERE likes_count <> (SELECT count(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id);
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.bulk.BulkImporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImporterTest {
+    private final BulkImporter importer = new BulkImporter(new ObjectMapper().findAndRegisterModules(),
+            Validation.buildDefaultValidatorFactory().getValidator(), 3, 100);
+
+    @Test
+    void rejectedBatchIsRetriedRecordByRecord() throws IOException {
+        final List<String> saved = new ArrayList<>();
+        final BulkImportResult result = importer.importRecords(ndjson("Film 0", "Film 1", "Rejected", "Film 3"),
+                Film.class, film -> {
+                }, films -> {
+                    // как БД: пачка с отклоненной записью не сохраняется целиком
+                    if (films.stream().anyMatch(film -> film.getName().equals("Rejected"))) {
+                        throw new DataIntegrityViolationException("Rejected film");
+                    }
+                    films.forEach(film -> saved.add(film.getName()));
+                });
+
+        assertEquals(4, result.getReceived(), "Bad received records count");
+        assertEquals(3, result.getImported(), "Only rejected record must fail");
+        assertEquals(1, result.getFailed(), "Bad failed records count");
+        assertEquals(2, result.getErrors().get(0).index(), "Bad index of rejected record");
+        assertEquals(List.of("Film 0", "Film 1", "Film 3"), saved, "Accepted records must be saved once");
+    }
+
+    @Test
+    void recordsLongerThanSchemaColumnsAreRejected() throws IOException {
+        final List<Film> saved = new ArrayList<>();
+        final BulkImportResult result = importer.importRecords(ndjson("Film 0", "F".repeat(41)),
+                Film.class, film -> {
+                }, saved::addAll);
+
+        assertEquals(1, result.getImported(), "Bad imported records count");
+        assertEquals(1, result.getErrors().get(0).index(), "Too long name must fail validation");
+        assertTrue(result.getErrors().get(0).error().startsWith("name"), "Error must name the field");
+    }
+
+    private static ByteArrayInputStream ndjson(String... names) {
+        final StringBuilder body = new StringBuilder();
+        for (String name : names) {
+            body.append("{\"name\":\"").append(name).append("\",\"duration\":100}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import ru.yandex.practicum.filmorate.config.ConcurrencyLimitingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitingDataSourceTest {
+    private final ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(
+            new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:limiter", "sa", ""), 2,
+            Duration.ofMillis(50));
+
+    @Test
+    void limitsConcurrentConnections() throws Exception {
+        final Connection first = dataSource.getConnection();
+        final Connection second = dataSource.getConnection();
+
+        assertEquals(0, dataSource.getAvailablePermits(), "Both permits must be taken");
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection,
+                "Connection above the limit must time out");
+
+        first.close();
+        try (Connection third = dataSource.getConnection()) {
+            assertTrue(third.isValid(1), "Closed connection must release its permit");
+        }
+        second.close();
+        assertEquals(2, dataSource.getAvailablePermits(), "All permits must be released");
+    }
+
+    @Test
+    void repeatedCloseReleasesPermitOnce() throws Exception {
+        final Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(2, dataSource.getAvailablePermits(), "Repeated close must not add permits");
+    }
+}
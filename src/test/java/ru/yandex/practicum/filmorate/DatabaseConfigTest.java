@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.DatabaseConfig;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConfigTest {
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(DatabaseConfig.class)
+            .withBean(DataSourceProperties.class, () -> {
+                final DataSourceProperties properties = new DataSourceProperties();
+                properties.setUrl("jdbc:h2:mem:prodconfig;DB_CLOSE_DELAY=-1");
+                properties.setUsername("sa");
+                return properties;
+            })
+            .withPropertyValues("spring.profiles.active=prod");
+
+    @Test
+    void appliesPoolAndH2Settings() {
+        runner.withPropertyValues("filmorate.db.pool-size=4", "filmorate.db.min-idle=2",
+                        "filmorate.db.cache-size-kb=4096", "filmorate.db.lock-timeout=300ms")
+                .run(context -> {
+                    assertNull(context.getStartupFailure(), "Context must start with valid settings");
+                    final HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+                    assertEquals(4, dataSource.getMaximumPoolSize(), "Bad pool size");
+                    assertEquals(2, dataSource.getMinimumIdle(), "Bad min idle");
+
+                    final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+                    assertEquals("4096", jdbc.queryForObject(
+                            "SELECT setting_value FROM information_schema.settings WHERE setting_name = 'CACHE_SIZE'",
+                            String.class), "CACHE_SIZE must be passed to H2");
+                    assertEquals(300, jdbc.queryForObject("SELECT LOCK_TIMEOUT()", Integer.class),
+                            "LOCK_TIMEOUT must be passed to H2");
+                });
+    }
+
+    @Test
+    void rejectsPoolSmallerThanMinIdle() {
+        runner.withPropertyValues("filmorate.db.pool-size=4", "filmorate.db.min-idle=8")
+                .run(context -> assertNotNull(context.getStartupFailure(), "min-idle above pool-size must fail"));
+    }
+
+    @Test
+    void rejectsLockTimeoutAboveConnectionTimeout() {
+        runner.withPropertyValues("filmorate.db.connection-timeout=1s", "filmorate.db.lock-timeout=5s")
+                .run(context -> assertNotNull(context.getStartupFailure(),
+                        "lock-timeout above connection-timeout must fail"));
+    }
+
+    @Test
+    void rejectsOutOfRangeValues() {
+        runner.withPropertyValues("filmorate.db.pool-size=0")
+                .run(context -> assertNotNull(context.getStartupFailure(), "Empty pool must fail"));
+        runner.withPropertyValues("filmorate.db.cache-size-kb=16")
+                .run(context -> assertNotNull(context.getStartupFailure(), "Tiny page cache must fail"));
+    }
+}
@@ -12,7 +12,11 @@ import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.film.MpaService;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.utils.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreRowMapper;
@@ -27,13 +31,15 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @Import({FilmDbStorage.class, MpaService.class, MpaRowMapper.class, MpaDbStorage.class,
-		GenreRowMapper.class, GenreDbStorage.class, FilmRowMapper.class})
+		GenreRowMapper.class, GenreDbStorage.class, FilmRowMapper.class, FilmPopularityIndex.class,
+		FilmLikesIndex.class, FilmSearchIndex.class, DictionaryRegistry.class})
 class FilmControllerTest {
 	private static final ConfigurableApplicationContext run = SpringApplication.run(FilmorateApplication.class);
 	private static Gson gson;
@@ -60,6 +66,209 @@ class FilmControllerTest {
 		assertEquals(200, response.statusCode(), "Bad HTTP status on GET films request");
 	}
 
+	@Test
+	void getFilmsPage() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films?after=0&limit=2");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET films page request");
+		assertTrue(JsonParser.parseString(response.body()).getAsJsonArray().size() <= 2,
+				"Films page is larger than requested limit");
+	}
+
+	@Test
+	void getFilmsPageWithTooLargeLimit() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films?limit=100000");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(400, response.statusCode(), "Bad HTTP status on GET films page request with limit > 1000");
+	}
+
+	@Test
+	void getFilmsAsNdjsonStream() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().setHeader("Accept", "application/x-ndjson").build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET films NDJSON stream request");
+		assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"),
+				"Bad Content-Type of films NDJSON stream");
+		response.body().lines().forEach(line -> assertTrue(JsonParser.parseString(line).isJsonObject(),
+				"Each line of NDJSON stream must be a JSON object"));
+	}
+
+	@Test
+	void importFilmsFromNdjson() throws IOException, InterruptedException {
+		final String body = """
+				{"name":"Bulk film 1","description":"d","releaseDate":"2000-01-01","duration":100,"mpa":{"id":1}}
+				{"name":"","description":"d","releaseDate":"2000-01-01","duration":100,"mpa":{"id":1}}
+				{"name":"Bulk film 3","description":"d","releaseDate":"2000-01-01","duration":100,"genres":[{"id":1}]}
+				""";
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/bulk");
+		HttpRequest request = HttpRequest.newBuilder(uri)
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.setHeader("Content-Type", "application/x-ndjson")
+				.build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on POST films bulk request");
+		final JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+		assertEquals(3, result.get("received").getAsLong(), "Bad received records count");
+		assertEquals(2, result.get("imported").getAsLong(), "Bad imported records count");
+		assertEquals(1, result.get("failed").getAsLong(), "Bad failed records count");
+		assertEquals(1, result.get("errors").getAsJsonArray().get(0).getAsJsonObject().get("index").getAsLong(),
+				"Bad index of failed record");
+	}
+
+	@Test
+	void postLikesBatchIsAccepted() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/likes");
+		HttpRequest request = HttpRequest.newBuilder(uri)
+				.POST(HttpRequest.BodyPublishers.ofString("[{\"filmId\":1,\"userId\":1},"
+						+ "{\"filmId\":1,\"userId\":1,\"liked\":false}]"))
+				.setHeader("Content-Type", "application/json")
+				.build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(202, response.statusCode(), "Bad HTTP status on POST films likes batch request");
+
+		uri = URI.create("http://localhost:8080/actuator/metrics/filmorate.likes.buffer.size");
+		response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+				HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Likes buffer size metric is absent");
+	}
+
+	@Test
+	void postLikesBatchWithoutFilmId() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/likes");
+		HttpRequest request = HttpRequest.newBuilder(uri)
+				.POST(HttpRequest.BodyPublishers.ofString("[{\"userId\":1}]"))
+				.setHeader("Content-Type", "application/json")
+				.build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(400, response.statusCode(), "Bad HTTP status on POST films likes batch without film ID");
+	}
+
+	@Test
+	void getCacheStatsAfterFilmRequest() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/films/1")).GET().build(),
+				HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+		URI uri = URI.create("http://localhost:8080/actuator/cachestats");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET cache statistics request");
+		assertTrue(JsonParser.parseString(response.body()).getAsJsonObject().has("films"),
+				"Films cache statistics is absent");
+	}
+
+	@Test
+	void getPrometheusMetricsAfterFilmsPageRequest() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/films?after=0&limit=2")).GET().build(),
+				HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+		URI uri = URI.create("http://localhost:8080/actuator/prometheus");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET prometheus metrics request");
+		assertTrue(response.body().contains("http_server_requests_seconds_bucket{"),
+				"Endpoint latency histogram is absent");
+		assertTrue(response.body().contains("filmorate_sql_query_seconds_count{query=\"FilmDbStorage.FIND_PAGE_QUERY\"}"),
+				"Named SQL query timer is absent");
+		assertTrue(response.body().contains("filmorate_http_statements_count{method=\"GET\",uri=\"/films\"}"),
+				"Statements per request metric is absent");
+	}
+
+	@Test
+	void getFilmWithIfNoneMatch() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8080/films"))
+				.setHeader("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(
+						"{\"name\":\"ETag film\",\"releaseDate\":\"2000-01-01\",\"duration\":100}"))
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		final long filmId = JsonParser.parseString(response.body()).getAsJsonObject().get("id").getAsLong();
+
+		URI uri = URI.create("http://localhost:8080/films/" + filmId);
+		response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET film request");
+		final String eTag = response.headers().firstValue("ETag").orElseThrow();
+		assertEquals(1, response.headers().allValues("ETag").size(), "Film response must have one ETag");
+		assertEquals("no-cache", response.headers().firstValue("Cache-Control").orElseThrow(),
+				"Film must be revalidated before reuse");
+
+		response = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", eTag).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(304, response.statusCode(), "Unchanged film must not be sent again");
+		assertTrue(response.body().isEmpty(), "Not modified response must have no body");
+		assertEquals(List.of(eTag), response.headers().allValues("ETag"), "Not modified response ETag");
+
+		request = HttpRequest.newBuilder(URI.create("http://localhost:8080/films"))
+				.setHeader("Content-Type", "application/json")
+				.PUT(HttpRequest.BodyPublishers.ofString(
+						"{\"id\":" + filmId + ",\"name\":\"ETag film 2\",\"duration\":100}"))
+				.build();
+		assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+		response = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", eTag).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "Updated film must be sent again");
+		final String updatedETag = response.headers().firstValue("ETag").orElseThrow();
+		assertNotEquals(eTag, updatedETag, "Update must change ETag");
+		assertTrue(response.body().contains("ETag film 2"), "Updated film must be returned");
+
+		// в JSON фильма есть названия из справочников: их перезагрузка тоже меняет ETag
+		response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/actuator/dictionaries"))
+				.POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "Bad HTTP status on dictionaries reload");
+		response = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", updatedETag).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "Film must be sent again after dictionaries reload");
+		assertNotEquals(updatedETag, response.headers().firstValue("ETag").orElseThrow(),
+				"Dictionaries reload must change film ETag");
+	}
+
+	@Test
+	void getUnknownFilmHasNoETag() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/999999");
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(404, response.statusCode(), "Unknown film must not be found");
+		assertTrue(response.headers().firstValue("ETag").isEmpty(), "Missing film must not get ETag");
+	}
+
+	@Test
+	void getDictionariesWithIfNoneMatch() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		for (String path : new String[]{"/genres", "/genres/1", "/mpa", "/mpa/1"}) {
+			URI uri = URI.create("http://localhost:8080" + path);
+			HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, response.statusCode(), "Bad HTTP status on GET " + path);
+			assertEquals("max-age=3600, public", response.headers().firstValue("Cache-Control").orElseThrow(),
+					"Bad Cache-Control of " + path);
+			final String eTag = response.headers().firstValue("ETag").orElseThrow();
+
+			response = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", eTag).GET().build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(304, response.statusCode(), "Unchanged dictionary must not be sent again: " + path);
+		}
+	}
+
 	@Test
 	void getPopularFilms() throws IOException, InterruptedException {
 		HttpClient client = HttpClient.newHttpClient();
@@ -80,6 +289,51 @@ class FilmControllerTest {
 		assertEquals(400, response.statusCode(), "Bad HTTP status on GET popular films request count < 1");
 	}
 
+	@Test
+	void getPopularFilmsOfGenreAndYear() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/popular?count=5&genreId=1&year=2023");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET popular films of genre and year");
+
+		uri = URI.create("http://localhost:8080/films/popular?genreId=999");
+		request = HttpRequest.newBuilder(uri).GET().build();
+		response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(400, response.statusCode(), "Bad HTTP status on GET popular films of unknown genre");
+	}
+
+	@Test
+	void searchFilms() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/search?query=matrix&by=title,description");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode(), "Bad HTTP status on GET films search");
+
+		uri = URI.create("http://localhost:8080/films/search?query=matrix&by=director");
+		request = HttpRequest.newBuilder(uri).GET().build();
+		response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(400, response.statusCode(), "Bad HTTP status on GET films search by unknown field");
+	}
+
+	@Test
+	void getCommonFilmsOfUnknownUsers() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:8080/films/common?userId=999999&friendId=999998");
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(404, response.statusCode(), "Bad HTTP status on GET common films of unknown users");
+
+		uri = URI.create("http://localhost:8080/films/common?userId=1");
+		request = HttpRequest.newBuilder(uri).GET().build();
+		response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(400, response.statusCode(), "Bad HTTP status on GET common films without friendId");
+	}
+
 	@Test
 	void postVaildFilmCreation() throws IOException, InterruptedException {
 		final Film film = new Film();
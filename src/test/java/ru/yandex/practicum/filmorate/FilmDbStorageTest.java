@@ -0,0 +1,458 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.utils.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRowMapper;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmDbStorage.class, FilmRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, MpaRowMapper.class,
+        DictionaryRegistry.class, FilmPopularityIndex.class, FilmLikesIndex.class, FilmSearchIndex.class,
+        FilmDbStorageTest.StatementCounterConfig.class})
+class FilmDbStorageTest {
+    private static final AtomicInteger statements = new AtomicInteger();
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private DictionaryRegistry dictionaries;
+
+    @BeforeEach
+    void beforeEach() {
+        // рейтинг и матрица лайков хранятся в памяти и не откатываются вместе с транзакциями предыдущих тестов
+        filmStorage.rebuildPopularity();
+        filmStorage.rebuildLikes();
+        filmStorage.rebuildSearch();
+        createFilms(3);
+    }
+
+    @Test
+    void findAllUsesConstantNumberOfStatements() {
+        final int smallCount = countStatements(() -> filmStorage.findAll());
+
+        createFilms(20);
+        final int largeCount = countStatements(() -> filmStorage.findAll());
+
+        assertEquals(2, smallCount, "Films and their genres must be loaded by two statements");
+        assertEquals(smallCount, largeCount, "Statements count must not depend on films count");
+    }
+
+    @Test
+    void findPopularUsesConstantNumberOfStatements() {
+        likeAllFilms();
+        final int smallCount = countStatements(() -> filmStorage.findPopular(10));
+
+        createFilms(20);
+        likeAllFilms();
+        final int largeCount = countStatements(() -> filmStorage.findPopular(100));
+
+        assertEquals(2, smallCount, "Popular films and their genres must be loaded by two statements");
+        assertEquals(smallCount, largeCount, "Statements count must not depend on films count");
+    }
+
+    @Test
+    void findOneByIdLoadsFilmWithGenres() {
+        final Film created = createFilms(1).get(0);
+
+        statements.set(0);
+        final Film film = filmStorage.findOneById(created.getId());
+
+        assertEquals(2, statements.get(), "Film and its genres must be loaded by two statements");
+        assertEquals(List.of(1, 2), film.getGenres().stream().map(Genre::getId).toList(),
+                "Film genres must be loaded");
+        assertSame(dictionaries.findGenre(1), film.getGenres().get(0), "Genres must be taken from dictionary");
+        assertSame(dictionaries.findMpa(1), film.getMpa(), "MPA must be taken from dictionary");
+    }
+
+    private int countStatements(Runnable action) {
+        statements.set(0);
+        action.run();
+        return statements.get();
+    }
+
+    @Test
+    void createWritesUniqueGenresWithOneBatch() {
+        final Film film = new Film();
+        film.setName("Film with repeated genres");
+        film.setDuration(100);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setGenres(List.of(new Genre(3, ""), new Genre(1, ""), new Genre(3, ""), new Genre(2, "")));
+
+        statements.set(0);
+        filmStorage.create(film);
+
+        assertEquals(2, statements.get(), "Film and all its genres must be written by two statements");
+        assertEquals(List.of(1, 2, 3), filmStorage.findOneById(film.getId()).getGenres().stream()
+                .map(Genre::getId).toList(), "Repeated genres must be written once");
+    }
+
+    @Test
+    void likesMaintainCountersAndPopularityOrder() {
+        final List<Film> films = createFilms(3);
+        final long firstUserId = createUser();
+        final long secondUserId = createUser();
+        filmStorage.addLike(films.get(2).getId(), firstUserId);
+        filmStorage.addLike(films.get(2).getId(), secondUserId);
+        filmStorage.addLike(films.get(1).getId(), firstUserId);
+        filmStorage.addLike(films.get(0).getId(), firstUserId);
+        filmStorage.deleteLike(films.get(0).getId(), firstUserId);
+
+        assertEquals(List.of(films.get(2).getId(), films.get(1).getId()),
+                filmStorage.findPopular(10).stream().map(Film::getId).toList(),
+                "Popular films must be ordered by likes count");
+        assertEquals(2, jdbc.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, films.get(2).getId()), "Likes counter must be updated with likes");
+
+        filmStorage.rebuildPopularity();
+        assertEquals(List.of(films.get(2).getId(), films.get(1).getId()),
+                filmStorage.findPopular(10).stream().map(Film::getId).toList(),
+                "Popularity rebuild must keep the same order");
+    }
+
+    @Test
+    void rebuildIsReadOnlyAndRecountFixesDivergedCounters() {
+        final List<Film> films = createFilms(2);
+        final long userId = createUser();
+        filmStorage.addLike(films.get(0).getId(), userId);
+        // счетчик разошелся с film_likes, например после правки БД вручную
+        jdbc.update("UPDATE films SET likes_count = 5 WHERE film_id = ?", films.get(1).getId());
+
+        filmStorage.rebuildPopularity();
+        assertEquals(5, jdbc.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, films.get(1).getId()), "Rebuild must not write likes counters");
+        assertEquals(List.of(films.get(1).getId(), films.get(0).getId()),
+                filmStorage.findPopular(10).stream().map(Film::getId).toList(),
+                "Rebuild must use persisted likes counters");
+
+        assertEquals(1, filmStorage.recountLikes(), "Only diverged counter must be fixed");
+        assertEquals(List.of(films.get(0).getId()),
+                filmStorage.findPopular(10).stream().map(Film::getId).toList(),
+                "Recount must rebuild popularity");
+        assertEquals(0, filmStorage.recountLikes(), "Consistent counters must not be changed");
+    }
+
+    @Test
+    void applyLikesSkipsDuplicatesAndUnknownFilms() {
+        final List<Film> films = createFilms(2);
+        final long firstUserId = createUser();
+        final long secondUserId = createUser();
+        filmStorage.addLike(films.get(0).getId(), firstUserId);
+
+        statements.set(0);
+        filmStorage.applyLikes(List.of(
+                new LikeChange(films.get(0).getId(), firstUserId, true),
+                new LikeChange(films.get(0).getId(), secondUserId, true),
+                new LikeChange(films.get(1).getId(), firstUserId, true),
+                new LikeChange(-1L, firstUserId, true),
+                new LikeChange(films.get(1).getId(), secondUserId, false)));
+
+        assertEquals(3, statements.get(), "Likes, unlikes and counters must be written by three batches");
+        assertEquals(2, jdbc.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, films.get(0).getId()), "Existing like must not be counted twice");
+        assertEquals(List.of(films.get(0).getId(), films.get(1).getId()),
+                filmStorage.findPopular(10).stream().map(Film::getId).toList(),
+                "Popularity must reflect applied likes");
+    }
+
+    @Test
+    void recommendationsFollowUsersWithSimilarLikes() {
+        final List<Film> films = createFilms(4);
+        final long userId = createUser();
+        final long similarUserId = createUser();
+        final long otherUserId = createUser();
+        filmStorage.addLike(films.get(0).getId(), userId);
+        filmStorage.addLike(films.get(1).getId(), userId);
+        filmStorage.applyLikes(List.of(
+                new LikeChange(films.get(0).getId(), similarUserId, true),
+                new LikeChange(films.get(1).getId(), similarUserId, true),
+                new LikeChange(films.get(2).getId(), similarUserId, true),
+                new LikeChange(films.get(3).getId(), otherUserId, true)));
+
+        assertEquals(List.of(films.get(2).getId()),
+                filmStorage.findRecommended(userId, 10).stream().map(Film::getId).toList(),
+                "Only films liked by similar user must be recommended");
+        assertEquals(2, countStatements(() -> filmStorage.findRecommended(userId, 10)),
+                "Recommended films and their genres must be loaded by two statements");
+
+        filmStorage.rebuildLikes();
+        filmStorage.addLike(films.get(2).getId(), userId);
+        assertTrue(filmStorage.findRecommended(userId, 10).isEmpty(), "Liked films must not be recommended");
+        filmStorage.deleteLike(films.get(2).getId(), userId);
+        assertEquals(List.of(films.get(2).getId()),
+                filmStorage.findRecommended(userId, 10).stream().map(Film::getId).toList(),
+                "Unliked film must be recommended again");
+    }
+
+    @Test
+    void popularFilmsAreFilteredByGenreAndYear() {
+        final List<Film> films = createFilms(2);
+        final Film comedy = new Film();
+        comedy.setName("Comedy");
+        comedy.setDuration(90);
+        comedy.setReleaseDate(LocalDate.of(2023, 3, 1));
+        comedy.setGenres(List.of(new Genre(1, "")));
+        filmStorage.create(comedy);
+        final long firstUserId = createUser();
+        final long secondUserId = createUser();
+        filmStorage.applyLikes(List.of(
+                new LikeChange(films.get(0).getId(), firstUserId, true),
+                new LikeChange(films.get(1).getId(), firstUserId, true),
+                new LikeChange(films.get(1).getId(), secondUserId, true),
+                new LikeChange(comedy.getId(), firstUserId, true),
+                new LikeChange(comedy.getId(), secondUserId, true)));
+
+        assertPopular(List.of(films.get(1).getId(), comedy.getId(), films.get(0).getId()), 1, null);
+        assertPopular(List.of(films.get(1).getId(), films.get(0).getId()), 2, null);
+        assertPopular(List.of(comedy.getId()), null, 2023);
+        assertPopular(List.of(films.get(1).getId(), films.get(0).getId()), 2, 2000);
+        assertPopular(List.of(), 2, 2023);
+        assertEquals(2, countStatements(() -> filmStorage.findPopular(10, 1, 2023)),
+                "Filtered popular films and their genres must be loaded by two statements");
+
+        final Film update = new Film();
+        update.setId(films.get(0).getId());
+        update.setDuration(100);
+        update.setReleaseDate(LocalDate.of(2023, 1, 1));
+        filmStorage.update(update);
+        filmStorage.addLike(films.get(0).getId(), secondUserId);
+        assertPopular(List.of(films.get(0).getId(), comedy.getId()), 1, 2023);
+        assertPopular(List.of(films.get(1).getId()), 1, 2000);
+
+        filmStorage.rebuildPopularity();
+        assertPopular(List.of(films.get(0).getId(), comedy.getId()), 1, 2023);
+        assertPopular(List.of(films.get(0).getId()), 2, 2023);
+    }
+
+    @Test
+    void searchFollowsFilmChanges() {
+        final Film film = new Film();
+        film.setName("Матрица");
+        film.setDescription("Хакер узнает правду");
+        film.setReleaseDate(LocalDate.of(1999, 3, 31));
+        film.setDuration(136);
+        final long id = filmStorage.create(film).getId();
+
+        assertEquals(List.of(id), search("матрицы"), "Created film must be found");
+        assertEquals(2, countStatements(() -> filmStorage.search("матрицы", EnumSet.allOf(FilmSearchField.class), 10)),
+                "Found films and their genres must be loaded by two statements");
+
+        final Film update = new Film();
+        update.setId(id);
+        update.setDescription("Нео выбирает красную таблетку");
+        update.setDuration(136);
+        filmStorage.update(update);
+        assertEquals(List.of(id), search("матр таблетк"), "Unchanged name and new description must be found");
+        assertTrue(search("хакер").isEmpty(), "Old description must not be found");
+
+        filmStorage.rebuildSearch();
+        assertEquals(List.of(id), search("матр таблетк"), "Rebuilt index must match incremental one");
+        filmStorage.delete(id);
+        assertTrue(search("матрица").isEmpty(), "Deleted film must not be found");
+    }
+
+    @Test
+    void commonFilmsAreOrderedByPopularity() {
+        final List<Film> films = createFilms(4);
+        final long userId = createUser();
+        final long friendId = createUser();
+        final long otherUserId = createUser();
+        filmStorage.applyLikes(List.of(
+                new LikeChange(films.get(0).getId(), userId, true),
+                new LikeChange(films.get(1).getId(), userId, true),
+                new LikeChange(films.get(2).getId(), userId, true),
+                new LikeChange(films.get(0).getId(), friendId, true),
+                new LikeChange(films.get(1).getId(), friendId, true),
+                new LikeChange(films.get(3).getId(), friendId, true),
+                new LikeChange(films.get(1).getId(), otherUserId, true)));
+
+        assertEquals(List.of(films.get(1).getId(), films.get(0).getId()),
+                filmStorage.findCommon(userId, friendId).stream().map(Film::getId).toList(),
+                "Common films must be ordered by likes count");
+        assertEquals(2, countStatements(() -> filmStorage.findCommon(userId, friendId)),
+                "Common films and their genres must be loaded by two statements");
+        filmStorage.deleteLike(films.get(1).getId(), friendId);
+        assertEquals(List.of(films.get(0).getId()),
+                filmStorage.findCommon(friendId, userId).stream().map(Film::getId).toList(),
+                "Unliked film must not be common");
+        assertTrue(filmStorage.findCommon(userId, otherUserId + 1).isEmpty(),
+                "User without likes must have no common films");
+    }
+
+    @Test
+    void writesUseSingleStatementWithoutExistenceChecks() {
+        final Film film = createFilms(1).get(0);
+        final long userId = createUser();
+
+        final Film update = new Film();
+        update.setId(film.getId());
+        update.setName("Updated film");
+        update.setDuration(120);
+        assertEquals(1, countStatements(() -> filmStorage.update(update)), "Update must be one statement");
+        assertEquals(2, countStatements(() -> filmStorage.addLike(film.getId(), userId)),
+                "Like must be written by insert and counter update");
+        assertEquals(2, countStatements(() -> filmStorage.addLike(film.getId(), userId)),
+                "Repeated like must be detected by insert and one existence check");
+        assertEquals(1, jdbc.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, film.getId()), "Repeated like must not be counted");
+        assertEquals(2, countStatements(() -> filmStorage.deleteLike(film.getId(), userId)),
+                "Unlike must be written by delete and counter update");
+        assertEquals(2, countStatements(() -> filmStorage.delete(film.getId())),
+                "Film must be deleted by genres and film deletes");
+    }
+
+    @Test
+    void writesToUnknownFilmOrUserAreNotFound() {
+        final Film film = createFilms(1).get(0);
+        final long userId = createUser();
+        final Film update = new Film();
+        update.setId(-1L);
+        update.setName("Unknown film");
+        update.setDuration(100);
+
+        assertThrows(NotFoundException.class, () -> filmStorage.update(update), "Unknown film update");
+        assertThrows(NotFoundException.class, () -> filmStorage.delete(-1L), "Unknown film delete");
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(-1L, userId), "Like of unknown film");
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(film.getId(), -1L), "Like by unknown user");
+        assertThrows(NotFoundException.class, () -> filmStorage.deleteLike(-1L, userId), "Unlike of unknown film");
+        assertDoesNotThrow(() -> filmStorage.deleteLike(film.getId(), userId), "Missing like of known film");
+    }
+
+    @Test
+    void updateKeepsNotPassedFieldsAndDeleteReturnsGenres() {
+        final Film film = createFilms(1).get(0);
+        final Film update = new Film();
+        update.setId(film.getId());
+        update.setName(" ");
+        update.setDuration(90);
+
+        final Film updated = filmStorage.update(update);
+
+        assertEquals(film.getName(), updated.getName(), "Blank name must not be changed");
+        assertEquals(film.getReleaseDate(), updated.getReleaseDate(), "Missing release date must not be changed");
+        assertEquals(90, filmStorage.findOneById(film.getId()).getDuration(), "Duration must be updated");
+
+        final Film deleted = filmStorage.delete(film.getId());
+        assertEquals(List.of(1, 2), deleted.getGenres().stream().map(Genre::getId).toList(),
+                "Deleted film must be returned with its genres");
+        assertNull(filmStorage.findOneById(film.getId()), "Film must be deleted");
+    }
+
+    private void likeAllFilms() {
+        final long userId = createUser();
+        filmStorage.findAll().forEach(film -> filmStorage.addLike(film.getId(), userId));
+    }
+
+    private List<Long> search(String query) {
+        return filmStorage.search(query, EnumSet.allOf(FilmSearchField.class), 10).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    private void assertPopular(List<Long> expected, Integer genreId, Integer year) {
+        assertEquals(expected, filmStorage.findPopular(10, genreId, year).stream().map(Film::getId).toList(),
+                "Bad popular films of genre " + genreId + " and year " + year);
+    }
+
+    private long createUser() {
+        jdbc.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('user@mail.ru', 'user', 'user', '2000-01-01')");
+        return jdbc.queryForObject("SELECT max(user_id) FROM users", Long.class);
+    }
+
+    private List<Film> createFilms(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> {
+                    final Film film = new Film();
+                    film.setName("Film " + i);
+                    film.setDuration(100);
+                    film.setReleaseDate(LocalDate.of(2000, 1, 1));
+                    film.setMpa(new Mpa(1, "G"));
+                    film.setGenres(List.of(new Genre(1, ""), new Genre(2, "")));
+                    return filmStorage.create(film);
+                })
+                .toList();
+    }
+
+    @TestConfiguration
+    static class StatementCounterConfig {
+        // оборачиваем DataSource, чтобы считать подготовленные к выполнению SQL-команды
+        @Bean
+        static BeanPostProcessor statementCountingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return countingDataSource(dataSource);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static DataSource countingDataSource(DataSource dataSource) {
+            return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                    new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                        final Object result = invoke(dataSource, method, args);
+                        return result instanceof Connection connection ? countingConnection(connection) : result;
+                    });
+        }
+
+        private static Connection countingConnection(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        final String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("createStatement")
+                                || name.equals("prepareCall")) {
+                            statements.incrementAndGet();
+                        }
+                        return invoke(connection, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmLikesIndexTest {
+    @Test
+    void incrementalUpdatesKeepBothOrientationsSorted() {
+        final FilmLikesIndex index = new FilmLikesIndex();
+        index.rebuild(Map.of(3L, new long[]{20, 10}, 1L, new long[]{10}));
+        index.addLike(30, 1);
+        index.addLike(30, 1);
+        index.addLike(10, 2);
+        index.removeLike(20, 3);
+
+        assertArrayEquals(new long[]{10, 30}, index.getLikedFilms(1), "Liked films must be unique and sorted");
+        assertArrayEquals(new long[]{1, 2, 3}, index.getLikers(10), "Likers must be unique and sorted");
+        assertArrayEquals(new long[0], index.getLikers(20), "Removed like must disappear from film likers");
+        assertArrayEquals(new long[0], index.getLikedFilms(4), "User without likes must have no liked films");
+    }
+
+    @Test
+    void recommendationsAreOrderedByNeighboursOverlap() {
+        final FilmLikesIndex index = new FilmLikesIndex();
+        index.rebuild(Map.of(
+                1L, new long[]{10, 11, 12},
+                2L, new long[]{10, 11, 13},
+                3L, new long[]{12, 14},
+                4L, new long[]{15}));
+
+        assertEquals(List.of(13L, 14L), index.recommend(1, 10),
+                "Films must be ordered by overlap of users who liked them");
+        assertEquals(List.of(13L), index.recommend(1, 1), "Recommendations must be limited");
+        assertTrue(index.recommend(4, 10).isEmpty(), "User without neighbours must get no recommendations");
+        assertTrue(index.recommend(5, 10).isEmpty(), "User without likes must get no recommendations");
+    }
+
+    @Test
+    void recommendationsMatchNaiveComputation() {
+        final Random random = new Random(42);
+        // небольшая матрица проверяет последовательный подсчет, популярные фильмы большой - подсчет по долям
+        for (int[] sizes : new int[][]{{500, 200, 8}, {200_000, 20, 4}}) {
+            final Map<Long, long[]> usersLikes = randomLikes(random, sizes[0], sizes[1], sizes[2]);
+            final FilmLikesIndex index = new FilmLikesIndex(4);
+            index.rebuild(usersLikes);
+            for (long userId = 1; userId <= 20; userId++) {
+                assertEquals(naiveRecommend(usersLikes, userId, 10), index.recommend(userId, 10),
+                        "Bad recommendations for user " + userId + " of " + sizes[0]);
+            }
+        }
+    }
+
+    // лайки с перекосом в сторону фильмов с меньшими ID, как у популярных фильмов
+    private Map<Long, long[]> randomLikes(Random random, int users, int films, int likesPerUser) {
+        final Map<Long, long[]> usersLikes = new HashMap<>();
+        for (long userId = 1; userId <= users; userId++) {
+            usersLikes.put(userId, random.ints(likesPerUser * 2L, 0, films)
+                    .map(film -> 1 + film * film / films)
+                    .asLongStream()
+                    .distinct()
+                    .limit(likesPerUser)
+                    .toArray());
+        }
+        return usersLikes;
+    }
+
+    private List<Long> naiveRecommend(Map<Long, long[]> usersLikes, long userId, int count) {
+        final Set<Long> liked = Arrays.stream(usersLikes.get(userId)).boxed().collect(Collectors.toSet());
+        final Map<Long, Integer> overlaps = new HashMap<>();
+        usersLikes.forEach((otherId, films) -> {
+            final int overlap = (int) Arrays.stream(films).filter(liked::contains).count();
+            if (otherId != userId && overlap > 0) {
+                overlaps.put(otherId, overlap);
+            }
+        });
+        final Map<Long, Integer> scores = new HashMap<>();
+        overlaps.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(FilmLikesIndex.NEIGHBOURS)
+                .forEach(neighbour -> Arrays.stream(usersLikes.get(neighbour.getKey()))
+                        .filter(filmId -> !liked.contains(filmId))
+                        .forEach(filmId -> scores.merge(filmId, neighbour.getValue(), Integer::sum)));
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
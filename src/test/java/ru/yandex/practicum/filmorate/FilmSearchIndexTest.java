@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmSearchIndex;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    private static final Set<FilmSearchField> ALL_FIELDS = EnumSet.allOf(FilmSearchField.class);
+
+    @Test
+    void tokenizeNormalizesRussianAndEnglishWords() {
+        assertEquals(List.of("матриц", "перезагрузк"), FilmSearchIndex.tokenize("Матрица: Перезагрузка"),
+                "Words must be lower-cased and stemmed");
+        assertEquals(List.of("матриц", "елк"), FilmSearchIndex.tokenize("матрицы и ёлки в матрице"),
+                "Stop words and repeated terms must be dropped, ё must become е");
+        assertEquals(List.of("matrix", "revolution", "2003"), FilmSearchIndex.tokenize("The Matrix Revolutions (2003)"),
+                "English plural endings and stop words must be dropped");
+    }
+
+    @Test
+    void searchMatchesPrefixesOfAllWords() {
+        final FilmSearchIndex index = new FilmSearchIndex();
+        index.index(1, "Матрица", "Хакер узнает правду о мире");
+        index.index(2, "Матрица: Перезагрузка", "Нео возвращается в Матрицу");
+        index.index(3, "Мир Юрского периода", "Парк с динозаврами");
+
+        assertEquals(List.of(2L, 1L), search(index, "матрицы", ALL_FIELDS, Map.of()),
+                "Film with the word in both fields must be first");
+        assertEquals(List.of(2L), search(index, "матр перезагр", ALL_FIELDS, Map.of()),
+                "Film must contain all words of the query");
+        assertEquals(List.of(3L, 1L), search(index, "мир", ALL_FIELDS, Map.of()),
+                "Title match must outweigh description match");
+        assertEquals(List.of(1L), search(index, "мир", EnumSet.of(FilmSearchField.DESCRIPTION), Map.of()),
+                "Only selected fields must be searched");
+        assertTrue(search(index, "и в", ALL_FIELDS, Map.of()).isEmpty(), "Stop words must find nothing");
+    }
+
+    @Test
+    void likesBreakTiesOfTextRelevance() {
+        final FilmSearchIndex index = new FilmSearchIndex();
+        index.index(1, "Matrix", null);
+        index.index(2, "Matrix", null);
+
+        assertEquals(List.of(1L, 2L), search(index, "matrix", ALL_FIELDS, Map.of()), "Ties must be ordered by ID");
+        assertEquals(List.of(2L, 1L), search(index, "matrix", ALL_FIELDS, Map.of(2L, 10)),
+                "Popular film must be first among equally relevant");
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        final FilmSearchIndex index = new FilmSearchIndex();
+        index.index(1, "Old title", "Old description");
+        index.index(2, "Second", "Another old film");
+        index.index(1, "New title", null);
+        index.remove(2);
+
+        assertTrue(search(index, "old", ALL_FIELDS, Map.of()).isEmpty(), "Replaced and removed texts must be gone");
+        assertEquals(List.of(1L), search(index, "new", ALL_FIELDS, Map.of()), "New title must be found");
+
+        final FilmSearchIndex.Builder builder = index.builder();
+        builder.add(3, "Old title", null);
+        builder.add(4, "Old old", "title");
+        builder.build();
+        assertTrue(search(index, "new", ALL_FIELDS, Map.of()).isEmpty(), "Rebuild must replace the whole index");
+        assertEquals(List.of(3L, 4L), search(index, "old titl", ALL_FIELDS, Map.of()),
+                "Rebuilt index must be searchable");
+        index.remove(3);
+        assertEquals(List.of(4L), search(index, "old", ALL_FIELDS, Map.of()), "Rebuilt film must be removable");
+    }
+
+    private List<Long> search(FilmSearchIndex index, String query, Set<FilmSearchField> fields,
+                              Map<Long, Integer> likes) {
+        return index.search(query, fields, 10, filmId -> likes.getOrDefault(filmId, 0));
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.utils.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRowMapper;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Потоковая выдача фильмов на настоящем пуле из двух соединений: каждый поток должен обходиться одним.
+ */
+@JdbcTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:streaming;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=1000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({FilmDbStorage.class, FilmRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, MpaRowMapper.class,
+        DictionaryRegistry.class, FilmPopularityIndex.class, FilmLikesIndex.class, FilmSearchIndex.class})
+class FilmStreamingTest {
+    // больше пачки потоковой выдачи: жанры первой пачки читаются, пока ResultSet фильмов открыт
+    private static final int FILMS = 1200;
+    private static final int STREAMS = 4;
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Test
+    void concurrentStreamsDoNotExhaustPool() throws Exception {
+        assertEquals(2, dataSource.getMaximumPoolSize(), "Test needs a pool smaller than streams count");
+        jdbc.update("DELETE FROM film_genres");
+        jdbc.update("DELETE FROM films");
+        final List<Object[]> films = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            films.add(new Object[]{"Stream film " + i, "d", 100});
+        }
+        jdbc.batchUpdate("INSERT INTO films (name, description, release_date, duration) "
+                + "VALUES (?, ?, DATE '2000-01-01', ?)", films);
+
+        // одно соединение пула занято: поток, которому нужно второе, не дождался бы его
+        try (Connection ignored = dataSource.getConnection()) {
+            final AtomicInteger count = new AtomicInteger();
+            filmStorage.streamAll(film -> count.incrementAndGet());
+            assertEquals(FILMS, count.get(), "Stream must read all films using one connection");
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(STREAMS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Integer>> streams = new ArrayList<>();
+            for (int i = 0; i < STREAMS; i++) {
+                streams.add(executor.submit(() -> {
+                    start.await();
+                    final AtomicInteger count = new AtomicInteger();
+                    filmStorage.streamAll(film -> count.incrementAndGet());
+                    return count.get();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> stream : streams) {
+                assertEquals(FILMS, stream.get(), "Each of concurrent streams must read all films");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.user.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.utils.SortedLongArrays;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendGraphIndexTest {
+    @Test
+    void intersectMatchesNaiveIntersection() {
+        final Random random = new Random(42);
+        // близкие размеры проверяют слияние, сильно различающиеся - галопирующий поиск
+        for (int[] sizes : new int[][]{{0, 10}, {50, 60}, {3, 1000}, {20, 5000}}) {
+            final long[] first = randomSortedIds(random, sizes[0]);
+            final long[] second = randomSortedIds(random, sizes[1]);
+            final long[] expected = LongStream.of(first)
+                    .filter(id -> LongStream.of(second).anyMatch(other -> other == id))
+                    .toArray();
+
+            assertArrayEquals(expected, SortedLongArrays.intersect(first, second),
+                    "Bad intersection for sizes " + sizes[0] + " and " + sizes[1]);
+            assertArrayEquals(expected, SortedLongArrays.intersect(second, first),
+                    "Intersection must not depend on arguments order");
+        }
+    }
+
+    @Test
+    void incrementalUpdatesKeepFriendsSorted() {
+        final FriendGraphIndex index = new FriendGraphIndex();
+        index.rebuild(Map.of(1L, new long[]{5, 3}));
+        index.addFriend(1, 4);
+        index.addFriend(1, 4);
+        index.addFriend(2, 4);
+        index.removeFriend(1, 5);
+
+        assertArrayEquals(new long[]{3, 4}, index.getFriends(1), "Friends must be unique and sorted");
+        assertArrayEquals(new long[]{4}, index.findCommonFriends(1, 2), "Bad common friends");
+        assertEquals(0, index.countFriends(3), "User without friends must have zero friends count");
+    }
+
+    @Test
+    void suggestionsAreOrderedByMutualFriends() {
+        final FriendGraphIndex index = new FriendGraphIndex();
+        index.rebuild(Map.of(
+                1L, new long[]{2, 3},
+                2L, new long[]{1, 4, 5},
+                3L, new long[]{5, 6}));
+
+        assertEquals(List.of(5L, 4L, 6L), index.findSuggestions(1, 10),
+                "Suggestions must be ordered by mutual friends count, then by ID");
+        assertEquals(List.of(5L), index.findSuggestions(1, 1), "Suggestions must be limited");
+    }
+
+    private long[] randomSortedIds(Random random, int size) {
+        return random.longs(size * 2L, 0, size * 4L + 1).distinct().limit(size).sorted().toArray();
+    }
+}
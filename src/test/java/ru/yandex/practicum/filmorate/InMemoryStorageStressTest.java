@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+
+    @Test
+    void concurrentCreationGivesUniqueIds() throws Exception {
+        final InMemoryUserStorage storage = new InMemoryUserStorage();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                storage.create(user(thread + "-" + i));
+            }
+        });
+
+        final Set<Long> ids = storage.findAll().stream().map(User::getId).collect(Collectors.toSet());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, ids.size(), "Every created user must get its own ID");
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, ids.stream().mapToLong(Long::longValue).max().orElse(0),
+                "IDs must be issued without gaps");
+    }
+
+    @Test
+    void concurrentFriendshipChangesKeepFriendshipSymmetric() throws Exception {
+        final InMemoryUserStorage storage = new InMemoryUserStorage();
+        final int usersCount = 50;
+        for (int i = 0; i < usersCount; i++) {
+            storage.create(user("u" + i));
+        }
+
+        runConcurrently(thread -> {
+            final SplittableRandom random = new SplittableRandom(thread);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                final long id = 1 + random.nextInt(usersCount);
+                final long friendId = 1 + random.nextInt(usersCount);
+                if (id == friendId) {
+                    continue;
+                }
+                if (random.nextBoolean()) {
+                    storage.addFriend(id, friendId);
+                } else {
+                    storage.deleteFriend(friendId, id);
+                }
+            }
+        });
+
+        for (User user : storage.findAll()) {
+            for (Long friendId : user.getFriendIds()) {
+                assertTrue(storage.findAllFriends(friendId).contains(user),
+                        "Friendship of users " + user.getId() + " and " + friendId + " must be mutual");
+            }
+        }
+    }
+
+    @Test
+    void concurrentLikesAreNotLost() throws Exception {
+        final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < THREADS * OPERATIONS_PER_THREAD; i++) {
+            userStorage.create(user(String.valueOf(i)));
+        }
+        final InMemoryFilmStorage storage = new InMemoryFilmStorage(new DictionaryRegistry(null, null, null),
+                userStorage);
+        final Film film = new Film();
+        film.setName("Stress film");
+        film.setDuration(100);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        final long filmId = storage.create(film).getId();
+
+        // каждый поток ставит лайки от своих пользователей и снимает каждый второй, параллельно обновляя фильм
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                final long userId = (long) thread * OPERATIONS_PER_THREAD + i + 1;
+                storage.addLike(filmId, userId);
+                if (i % 2 == 1) {
+                    storage.deleteLike(filmId, userId);
+                }
+                if (i % 100 == 0) {
+                    final Film update = new Film();
+                    update.setId(filmId);
+                    update.setName("Stress film " + thread);
+                    update.setDuration(100);
+                    update.setReleaseDate(LocalDate.of(2000, 1, 1));
+                    storage.update(update);
+                }
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD / 2, storage.findOneById(filmId).getLikeUserIds().size(),
+                "Likes must not be lost by concurrent likes and updates");
+    }
+
+    @Test
+    void updatesAndLikesDoNotResurrectDeletedEntities() throws Exception {
+        final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        final InMemoryFilmStorage storage = new InMemoryFilmStorage(new DictionaryRegistry(null, null, null),
+                userStorage);
+        final int count = OPERATIONS_PER_THREAD;
+        for (int i = 0; i < count; i++) {
+            userStorage.create(user("u" + i));
+            storage.create(film("Film " + i));
+        }
+        final AtomicLong deletedUpTo = new AtomicLong();
+
+        // первый поток удаляет фильмы и пользователей по порядку, остальные обновляют и лайкают ближайшие к удалению
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (long id = 1; id <= count; id++) {
+                    storage.delete(id);
+                    userStorage.delete(id);
+                    deletedUpTo.set(id);
+                }
+                return;
+            }
+            final SplittableRandom random = new SplittableRandom(thread);
+            long id;
+            while ((id = deletedUpTo.get() + 1 + random.nextInt(2)) <= count) {
+                try {
+                    final Film update = film("Updated film " + thread);
+                    update.setId(id);
+                    storage.update(update);
+                    storage.addLike(id, (long) count);
+                    final User userUpdate = user("updated" + thread);
+                    userUpdate.setId(id);
+                    userStorage.update(userUpdate);
+                } catch (NotFoundException e) {
+                    // сущность уже удалена - ожидаемый исход гонки
+                }
+            }
+        });
+
+        assertTrue(storage.findAll().isEmpty(), "Deleted films must not be brought back by updates");
+        assertTrue(userStorage.findAll().isEmpty(), "Deleted users must not be brought back by updates");
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int threadNumber = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(threadNumber);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Film film(String name) {
+        final Film film = new Film();
+        film.setName(name);
+        film.setDuration(100);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        return film;
+    }
+
+    private User user(String login) {
+        final User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int threadNumber) throws Exception;
+    }
+}
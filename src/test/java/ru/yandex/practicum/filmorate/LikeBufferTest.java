@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.service.film.FilmVersions;
+import ru.yandex.practicum.filmorate.service.film.LikeBuffer;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryRegistry;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeBufferTest {
+    @Test
+    void bufferIsBoundedWhileDatabaseIsDown() {
+        final UnavailableFilmStorage storage = new UnavailableFilmStorage();
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final LikeBuffer buffer = new LikeBuffer(storage, new FilmVersions(), registry, 2, 4, false);
+
+        for (long userId = 1; userId <= 4; userId++) {
+            buffer.add(new LikeChange(1L, userId, true));
+        }
+        assertEquals(4, buffer.size(), "Failed flushes must return likes to buffer");
+        assertEquals(3, registry.counter("filmorate.likes.flush.failures").count(), "Bad failed flushes count");
+        assertThrows(ServiceUnavailableException.class, () -> buffer.add(new LikeChange(1L, 5L, true)),
+                "Full buffer must reject new likes");
+        assertThrows(ServiceUnavailableException.class, () -> buffer.addAll(List.of(new LikeChange(2L, 1L, true))),
+                "Full buffer must reject likes batch");
+        assertEquals(4, buffer.size(), "Rejected likes must not be buffered");
+
+        storage.available = true;
+        buffer.flush();
+        assertEquals(0, buffer.size(), "Buffer must be written when database is back");
+        buffer.add(new LikeChange(1L, 5L, true));
+        assertEquals(1, buffer.size(), "Buffer must accept likes after flush");
+    }
+
+    private static class UnavailableFilmStorage extends InMemoryFilmStorage {
+        private volatile boolean available;
+
+        UnavailableFilmStorage() {
+            super(new DictionaryRegistry(null, null, null), new InMemoryUserStorage());
+        }
+
+        @Override
+        public void applyLikes(Collection<LikeChange> changes) {
+            if (!available) {
+                throw new DataAccessResourceFailureException("БД недоступна");
+            }
+        }
+    }
+}
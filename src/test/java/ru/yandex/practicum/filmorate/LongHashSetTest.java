@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+    @Test
+    void behavesLikeHashSet() {
+        final SplittableRandom random = new SplittableRandom(7);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<>();
+        // небольшой диапазон значений дает много коллизий, удалений из середины цепочек и повторов, включая 0
+        for (int i = 0; i < 100_000; i++) {
+            final long value = random.nextLong(-50, 2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value), "Bad remove result for " + value);
+            } else {
+                assertEquals(expected.add(value), set.add(value), "Bad add result for " + value);
+            }
+        }
+
+        assertEquals(expected.size(), set.size(), "Bad set size");
+        for (long value = -50; value < 2000; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "Bad contains result for " + value);
+        }
+        assertEquals(expected, set, "Sets must be equal");
+        assertEquals(expected.hashCode(), set.hashCode(), "Equal sets must have equal hash codes");
+    }
+
+    @Test
+    void iteratorRemovesFromSet() {
+        final LongHashSet set = new LongHashSet(Set.of(1L, 2L, 3L));
+        final Iterator<Long> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() != 2L) {
+                iterator.remove();
+            }
+        }
+        assertArrayEquals(new long[]{2}, set.toArray(true), "Only not removed value must remain");
+    }
+
+    @Test
+    void filmLikesAreSerializedAsJsonArray() throws Exception {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final Film film = new Film();
+        film.getLikeUserIds().add(5L);
+        film.getLikeUserIds().add(3L);
+
+        final String json = objectMapper.writeValueAsString(film);
+        final Film restored = objectMapper.readValue(json, Film.class);
+
+        assertTrue(json.contains("\"likeUserIds\":["), "Likes must be serialized as JSON array");
+        assertInstanceOf(LongHashSet.class, restored.getLikeUserIds(), "Likes must be restored as LongHashSet");
+        assertEquals(Set.of(3L, 5L), restored.getLikeUserIds(), "Likes must survive JSON round trip");
+    }
+}
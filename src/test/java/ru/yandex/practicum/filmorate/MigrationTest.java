@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+class MigrationTest {
+    @Autowired
+    private Flyway flyway;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void repeatedMigrationKeepsDataAndAppliesNothing() {
+        jdbc.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('keep@mail.ru', 'keep', 'keep', '2000-01-01')");
+
+        assertEquals(0, flyway.migrate().migrationsExecuted, "Up-to-date schema must not be migrated again");
+        assertTrue(flyway.validateWithResult().validationSuccessful, "Applied migrations checksums must match");
+        assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM users WHERE login = 'keep'", Integer.class),
+                "Migration must not delete data");
+    }
+
+    @Test
+    void dictionariesAreSeeded() {
+        assertEquals(5, jdbc.queryForObject("SELECT count(*) FROM mpa_dict", Integer.class), "Bad MPA count");
+        assertEquals(6, jdbc.queryForObject("SELECT count(*) FROM genres", Integer.class), "Bad genres count");
+        assertEquals("Комедия", jdbc.queryForObject("SELECT name FROM genres WHERE genre_id = 1", String.class),
+                "Genre names must be read in UTF-8");
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Регрессионная проверка планов запросов: все SQL-константы хранилищ прогоняются через EXPLAIN.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+class QueryPlanTest {
+    // запросы, которым полный просмотр таблицы нужен по смыслу: они читают или обновляют все строки
+    private static final Set<String> FULL_SCAN_QUERIES = Set.of(
+            "FilmDbStorage.FIND_ALL_QUERY",
+            "FilmDbStorage.RECOUNT_LIKES_QUERY",
+            "FilmDbStorage.FIND_ALL_LIKES_QUERY",
+            "FilmDbStorage.FIND_POPULARITY_QUERY",
+            "FilmDbStorage.FIND_ALL_TEXTS_QUERY",
+            "UserDbStorage.FIND_ALL_QUERY",
+            "UserDbStorage.FIND_ALL_FRIENDSHIPS_QUERY");
+
+    private static final Pattern SQL = Pattern.compile("^\\s*(SELECT|INSERT|UPDATE|DELETE|MERGE)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    // полный просмотр в плане H2: tableScan или индекс без условия поиска, например /* PUBLIC.PRIMARY_KEY_4 */
+    private static final Pattern FULL_SCAN = Pattern.compile("\\.tableScan|/\\* PUBLIC\\.\\w+ \\*/");
+
+    // план SELECT ... FROM FINAL TABLE (UPDATE ...) показывает только просмотр измененных строк,
+    // поэтому изменяющая команда в скобках проверяется отдельно
+    private static final Pattern DATA_CHANGE_DELTA = Pattern.compile("\\b(?:FINAL|OLD|NEW) TABLE \\((.+)\\)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void hotQueriesDoNotScanWholeTables() {
+        final Map<String, String> queries = findQueries();
+        final List<String> failures = new ArrayList<>();
+        queries.forEach((name, sql) -> {
+            final Matcher delta = DATA_CHANGE_DELTA.matcher(sql);
+            final String plan = explain(sql) + (delta.find() ? "\n" + explain(delta.group(1)) : "");
+            if (FULL_SCAN.matcher(plan).find() && !FULL_SCAN_QUERIES.contains(name)) {
+                failures.add(name + ":\n" + plan);
+            }
+        });
+
+        assertTrue(queries.keySet().containsAll(FULL_SCAN_QUERIES), "Unknown queries in full scan list");
+        assertTrue(failures.isEmpty(), "Queries must use index lookups:\n" + String.join("\n\n", failures));
+    }
+
+    @Test
+    void reverseLookupsUseCoveringIndexes() {
+        assertPlanUses("SELECT film_id FROM film_likes WHERE user_id = ?", "FILM_LIKES_USER_IDX: USER_ID = ?1");
+        assertPlanUses("SELECT user_id FROM user_friends WHERE friend_id = ?",
+                "USER_FRIENDS_FRIEND_IDX: FRIEND_ID = ?1");
+        assertPlanUses("SELECT film_id FROM film_genres WHERE genre_id = ?", "FILM_GENRES_GENRE_IDX: GENRE_ID = ?1");
+        assertPlanUses("SELECT film_id, likes_count FROM films WHERE likes_count > 0",
+                "FILMS_LIKES_COUNT_IDX: LIKES_COUNT > 0");
+    }
+
+    private void assertPlanUses(String sql, String expected) {
+        final String plan = explain(sql);
+        assertTrue(plan.contains(expected), "Query must use index " + expected + ":\n" + plan);
+    }
+
+    private Map<String, String> findQueries() {
+        final Map<String, String> queries = new TreeMap<>();
+        for (Class<?> storage : List.of(FilmDbStorage.class, UserDbStorage.class, GenreDbStorage.class)) {
+            for (Field field : storage.getDeclaredFields()) {
+                if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    final String sql = (String) field.get(null);
+                    if (SQL.matcher(sql).find()) {
+                        queries.put(storage.getSimpleName() + "." + field.getName(), sql);
+                    }
+                } catch (IllegalAccessException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        }
+        return queries;
+    }
+
+    // все параметры запроса заполняются единицами: H2 принимает их и для "= ANY(?)"
+    private String explain(String sql) {
+        return jdbc.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                final int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, 1);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+}
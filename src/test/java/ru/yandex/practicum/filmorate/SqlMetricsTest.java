@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import ru.yandex.practicum.filmorate.config.SqlMetrics;
+import ru.yandex.practicum.filmorate.config.SqlMetricsDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlMetricsTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final SqlMetrics sqlMetrics = new SqlMetrics(registry, List.of(Queries.class));
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlMetricsDataSource(
+            new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:sqlmetrics;DB_CLOSE_DELAY=-1", "sa", ""),
+            () -> sqlMetrics));
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS items");
+        jdbcTemplate.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, name VARCHAR(20))");
+    }
+
+    @Test
+    void namedQueriesAreTimedWithRows() {
+        jdbcTemplate.batchUpdate(Queries.INSERT_QUERY, List.of(new Object[]{1, "a"}, new Object[]{2, "b"},
+                new Object[]{3, "c"}));
+        assertEquals(3, jdbcTemplate.query(Queries.FIND_ALL_QUERY, (rs, rowNum) -> rs.getLong("id")).size());
+
+        assertEquals(1, registry.get(SqlMetrics.QUERY_TIMER).tag("query", "Queries.FIND_ALL_QUERY").timer().count(),
+                "Named select must be timed once");
+        assertEquals(3, registry.get(SqlMetrics.QUERY_ROWS).tag("query", "Queries.FIND_ALL_QUERY").summary()
+                .totalAmount(), "Rows read by select must be counted");
+        assertEquals(3, registry.get(SqlMetrics.QUERY_ROWS).tag("query", "Queries.INSERT_QUERY").summary()
+                .totalAmount(), "Rows inserted by batch must be counted");
+    }
+
+    @Test
+    void unnamedQueriesAreGroupedByTable() {
+        // DDL из setUp тоже попадает в other
+        final long otherBefore = registry.get(SqlMetrics.QUERY_TIMER).tag("query", "other").timer().count();
+        jdbcTemplate.update("INSERT INTO items (id, name) VALUES (1, 'a')");
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Long.class);
+
+        assertEquals(1, registry.get(SqlMetrics.QUERY_TIMER).tag("query", "insert items").timer().count(),
+                "Generated insert must be named by its table");
+        assertEquals(otherBefore + 1, registry.get(SqlMetrics.QUERY_TIMER).tag("query", "other").timer().count(),
+                "Ad hoc select must fall into other");
+    }
+
+    @Test
+    void statementsAreCountedPerRequest() {
+        sqlMetrics.startRequest();
+        jdbcTemplate.query(Queries.FIND_ALL_QUERY, (rs, rowNum) -> rs.getLong("id"));
+        jdbcTemplate.query(Queries.FIND_ALL_QUERY, (rs, rowNum) -> rs.getLong("id"));
+
+        assertEquals(2, sqlMetrics.finishRequest("GET", "/items"), "Both statements must be counted");
+        assertEquals(2, registry.get(SqlMetrics.REQUEST_STATEMENTS).tags("method", "GET", "uri", "/items")
+                .summary().max(), "Statement count must be recorded with handler tags");
+
+        jdbcTemplate.query(Queries.FIND_ALL_QUERY, (rs, rowNum) -> rs.getLong("id"));
+        assertEquals(0, sqlMetrics.finishRequest("GET", "/items"), "Statements outside request must not be counted");
+    }
+
+    private static final class Queries {
+        private static final String FIND_ALL_QUERY = "SELECT id, name FROM items ORDER BY id";
+        private static final String INSERT_QUERY = "INSERT INTO items (id, name) VALUES (?, ?)";
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.utils.TopK;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+    // много равных значений: порядок при равенстве задается вторым ключом
+    private static final Comparator<long[]> ORDER = Comparator.comparingLong((long[] item) -> item[0]).reversed()
+            .thenComparingLong(item -> item[1]);
+
+    @Test
+    void selectMatchesFullSort() {
+        for (int size : new int[]{0, 5, 1000, 250_000}) {
+            final List<long[]> items = randomItems(size);
+            for (int k : new int[]{1, 10, 1000}) {
+                final List<long[]> expected = items.stream().sorted(ORDER).limit(k).toList();
+                final List<long[]> actual = TopK.select(items, k, ORDER);
+                assertEquals(expected.size(), actual.size(), "Bad top size for n = " + size + ", k = " + k);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSame(expected.get(i), actual.get(i), "Bad top element " + i + " for n = " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelCollectorMatchesSequential() {
+        final List<long[]> items = randomItems(50_000);
+        assertEquals(items.stream().collect(TopK.collector(100, ORDER)),
+                items.parallelStream().collect(TopK.collector(100, ORDER)),
+                "Parallel selection must give the same result");
+    }
+
+    private List<long[]> randomItems(int size) {
+        final SplittableRandom random = new SplittableRandom(size);
+        return IntStream.range(0, size)
+                .mapToObj(i -> new long[]{random.nextInt(50), i})
+                .toList();
+    }
+}
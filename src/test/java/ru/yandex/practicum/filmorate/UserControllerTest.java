@@ -11,6 +11,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.index.FriendGraphIndex;
 import ru.yandex.practicum.filmorate.storage.user.utils.UserRowMapper;
 import ru.yandex.practicum.filmorate.utils.LocalDateAdapter;
 
@@ -26,7 +27,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase
-@Import({UserDbStorage.class, UserRowMapper.class})
+@Import({UserDbStorage.class, UserRowMapper.class, FriendGraphIndex.class})
 class UserControllerTest {
     private static final ConfigurableApplicationContext run = SpringApplication.run(FilmorateApplication.class);
     private static Gson gson;
@@ -53,6 +54,48 @@ class UserControllerTest {
         assertEquals(200, response.statusCode(), "Bad HTTP status on GET users request");
     }
 
+    @Test
+    void getUsersPage() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:8080/users?after=0&limit=2");
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on GET users page request");
+        assertTrue(JsonParser.parseString(response.body()).getAsJsonArray().size() <= 2,
+                "Users page is larger than requested limit");
+    }
+
+    @Test
+    void getUsersAsNdjsonStream() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:8080/users");
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().setHeader("Accept", "application/x-ndjson").build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on GET users NDJSON stream request");
+        response.body().lines().forEach(line -> assertTrue(JsonParser.parseString(line).isJsonObject(),
+                "Each line of NDJSON stream must be a JSON object"));
+    }
+
+    @Test
+    void importUsersFromJsonArray() throws IOException, InterruptedException {
+        final String body = "[{\"email\":\"bulk1@ru\",\"login\":\"bulk1\",\"birthday\":\"2000-01-01\"}," +
+                "{\"email\":\"bulk2@ru\",\"login\":\"bulk2\",\"name\":\"Bulk\",\"birthday\":\"2000-01-01\"}]";
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:8080/users/bulk");
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .setHeader("Content-Type", "application/json")
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on POST users bulk request");
+        final JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(2, result.get("imported").getAsLong(), "Bad imported records count");
+        assertEquals(0, result.get("failed").getAsLong(), "Bad failed records count");
+    }
+
     @Test
     void getUserFriendsWithNonexistentUserId() throws IOException, InterruptedException {
         HttpClient client = HttpClient.newHttpClient();
@@ -104,6 +147,57 @@ class UserControllerTest {
         assertEquals(200, getResponse.statusCode(), "Bad HTTP status on GET common user friends");
     }
 
+    @Test
+    void getFriendSuggestionsAndFriendsCount() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        final Long[] ids = new Long[3];
+        for (int i = 0; i < ids.length; i++) {
+            final User user = new User();
+            user.setEmail("suggest" + i + "@ru");
+            user.setLogin("suggest" + i);
+            user.setBirthday(LocalDate.of(1975, 1, 27));
+            ids[i] = createUser(client, gson.toJson(user));
+        }
+        putFriend(client, ids[0], ids[1]);
+        putFriend(client, ids[1], ids[2]);
+
+        URI uri = URI.create(String.format("http://localhost:8080/users/%d/friends/suggestions", ids[0]));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on GET friend suggestions");
+        final JsonArray suggestions = JsonParser.parseString(response.body()).getAsJsonArray();
+        assertEquals(1, suggestions.size(), "Only friend of friend must be suggested");
+        assertEquals(ids[2], suggestions.get(0).getAsJsonObject().get("id").getAsLong(), "Bad suggested user");
+
+        uri = URI.create(String.format("http://localhost:8080/users/%d/friends/count", ids[1]));
+        response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on GET friends count");
+        assertEquals("1", response.body(), "Bad friends count");
+    }
+
+    @Test
+    void getFilmRecommendations() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        final User user = new User();
+        user.setEmail("recommend@ru");
+        user.setLogin("recommend");
+        user.setBirthday(LocalDate.of(1975, 1, 27));
+        final Long id = createUser(client, gson.toJson(user));
+
+        URI uri = URI.create(String.format("http://localhost:8080/users/%d/recommendations?count=5", id));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on GET film recommendations");
+        assertTrue(JsonParser.parseString(response.body()).getAsJsonArray().isEmpty(),
+                "User without likes must get no recommendations");
+
+        uri = URI.create("http://localhost:8080/users/999999/recommendations");
+        response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(404, response.statusCode(), "Bad HTTP status on GET recommendations for unknown user");
+    }
+
     @Test
     void postValidUserCreation() throws IOException, InterruptedException {
         final User user = new User();
@@ -214,4 +308,11 @@ class UserControllerTest {
         // получаем из ответа идентификатор созданного пользователя
         return jsonResponseObject.get("id").getAsLong();
     }
+
+    private void putFriend(HttpClient client, Long id, Long friendId) throws IOException, InterruptedException {
+        URI uri = URI.create(String.format("http://localhost:8080/users/%d/friends/%d", id, friendId));
+        HttpRequest request = HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.noBody()).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode(), "Bad HTTP status on PUT user friend");
+    }
 }